@@ -25,8 +25,8 @@ public class BulkVoicePreAssigner {
             long start = System.currentTimeMillis();
             try {
                 log.info("Starting bulk NPC voice pre-assignment (overwriteExisting={})", overwriteExisting);
-                VoiceAssignmentStore store = runtime.getAssignmentStore();
-                VoiceSelectionPipeline pipeline = runtime.getPipeline();
+                VoiceAssignmentStore store = runtime.getAssignmentStore().join(); // own thread, so waiting for the load is fine
+                VoiceSelectionPipeline pipeline = runtime.getPipeline().join();
                 Set<Integer> processed = new HashSet<>();
                 int assigned = 0;
                 int skipped = 0;
@@ -0,0 +1,67 @@
+package com.example.osrstts.npc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NpcMetadataService#analyzeNpc} against the contains() chain it replaced, over every NPC name in the bundled
+ * mapping files (see {@link KeywordAutomatonBenchmark}, which also checks the two agree). One operation analyzes the
+ * whole corpus once. The cold variant starts each operation with an empty name cache, so it times the automaton
+ * itself; the warm one is the steady state in game, where the same names come back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeywordAutomatonJmh {
+    private String[] names;
+    private KeywordAutomatonBenchmark.LegacyNpcMetadata legacy;
+    private NpcMetadataService warm;
+
+    @Setup
+    public void load() throws Exception {
+        names = KeywordAutomatonBenchmark.npcNames().toArray(new String[0]);
+        legacy = new KeywordAutomatonBenchmark.LegacyNpcMetadata();
+        warm = new NpcMetadataService();
+        for (String n : names) warm.analyzeNpc(n);
+    }
+
+    @State(Scope.Thread)
+    public static class Cold {
+        NpcMetadataService service;
+
+        @Setup(Level.Invocation) // one operation is a few milliseconds, well above the per-invocation setup noise
+        public void fresh() {
+            service = new NpcMetadataService();
+        }
+    }
+
+    @Benchmark
+    public void containsChain(Blackhole bh) {
+        for (String n : names) bh.consume(legacy.analyzeNpc(n));
+    }
+
+    @Benchmark
+    public void automatonColdCache(Cold cold, Blackhole bh) {
+        for (String n : names) bh.consume(cold.service.analyzeNpc(n));
+    }
+
+    @Benchmark
+    public void automatonWarmCache(Blackhole bh) {
+        for (String n : names) bh.consume(warm.analyzeNpc(n));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.osrstts.text;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each {@link TextNormalizer} scanner against the regex chain it replaced, on the realistic chat and widget strings
+ * of {@link TextNormalizerBenchmark} (which also checks that the two agree). Scores are per input string.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(TextNormalizerJmh.INPUT_COUNT)
+public class TextNormalizerJmh {
+    static final int INPUT_COUNT = 10; // TextNormalizerBenchmark.INPUTS.length
+
+    // Held in state so the loops cannot be folded over constants
+    private final String[] inputs = TextNormalizerBenchmark.INPUTS.clone();
+
+    @Benchmark
+    public void regexStripTags(Blackhole bh) {
+        for (String s : inputs) bh.consume(s.replaceAll("<[^>]*>", ""));
+    }
+
+    @Benchmark
+    public void scannerStripTags(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizer.stripTags(s));
+    }
+
+    @Benchmark
+    public void regexSanitizeName(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizerBenchmark.Legacy.sanitizeName(s));
+    }
+
+    @Benchmark
+    public void scannerSanitizeName(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizer.sanitizeName(s));
+    }
+
+    @Benchmark
+    public void regexFoldForContain(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizerBenchmark.Legacy.foldForContain(s));
+    }
+
+    @Benchmark
+    public void scannerFoldForContain(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizer.foldForContain(s));
+    }
+
+    @Benchmark
+    public void regexCollapseForSpeech(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizerBenchmark.Legacy.collapseForSpeech(s));
+    }
+
+    @Benchmark
+    public void scannerCollapseForSpeech(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizer.collapseForSpeech(s));
+    }
+
+    @Benchmark
+    public void regexNameKey(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizerBenchmark.Legacy.nameKey(s));
+    }
+
+    @Benchmark
+    public void scannerNameKey(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizer.nameKey(s));
+    }
+
+    @Benchmark
+    public void regexEndsSentence(Blackhole bh) {
+        for (String s : inputs) bh.consume(s.matches(".*[.!?]\\s*$"));
+    }
+
+    @Benchmark
+    public void scannerEndsSentence(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizer.endsSentence(s));
+    }
+
+    @Benchmark
+    public void regexVisibleLines(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizerBenchmark.Legacy.visibleLines(s));
+    }
+
+    @Benchmark
+    public void scannerVisibleLines(Blackhole bh) {
+        for (String s : inputs) bh.consume(TextNormalizer.visibleLines(s));
+    }
+}
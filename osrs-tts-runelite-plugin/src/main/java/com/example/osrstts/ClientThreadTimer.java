@@ -0,0 +1,48 @@
+package com.example.osrstts;
+
+/**
+ * Client-thread time spent in the plugin, per rendered frame. Handlers add their elapsed time and
+ * {@link #endFrame()} (called from BeforeRender) closes the frame. Client thread only, except {@link #getStats()}.
+ */
+final class ClientThreadTimer {
+    private static final int WINDOW = 1024; // recent busy frames kept for percentiles
+
+    private long frameNanos;
+    private long frames;
+    private long busyFrames;
+    private long totalNanos;
+    private long maxNanos;
+    private final long[] recent = new long[WINDOW];
+    private int recentCount;
+    private int recentNext;
+
+    /** Add the time since {@code t0} (a System.nanoTime() reading) to the current frame. */
+    void add(long t0) {
+        frameNanos += System.nanoTime() - t0;
+    }
+
+    void endFrame() {
+        long n = frameNanos;
+        frameNanos = 0L;
+        synchronized (this) {
+            frames++;
+            if (n == 0L) return;
+            busyFrames++;
+            totalNanos += n;
+            if (n > maxNanos) maxNanos = n;
+            recent[recentNext] = n;
+            recentNext = (recentNext + 1) % WINDOW;
+            if (recentCount < WINDOW) recentCount++;
+        }
+    }
+
+    synchronized String getStats() {
+        long[] sorted = java.util.Arrays.copyOf(recent, recentCount);
+        java.util.Arrays.sort(sorted);
+        long p50 = sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+        long p99 = sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))];
+        long avg = busyFrames == 0 ? 0 : totalNanos / busyFrames;
+        return "frames=" + frames + " busyFrames=" + busyFrames + " avgUs=" + avg / 1000 + " p50Us=" + p50 / 1000
+                + " p99Us=" + p99 / 1000 + " maxUs=" + maxNanos / 1000;
+    }
+}
@@ -39,7 +39,7 @@ public class OsrsTtsConfig {
 
     private void ensureDefaults() {
         // Provider and strategy
-    setIfMissing("tts.provider", "ElevenLabs");           // ElevenLabs | Azure | Polly
+    setIfMissing("tts.provider", "ElevenLabs");           // ElevenLabs | Azure | Polly | Piper
         setIfMissing("tts.api", getProvider());                // backward-compat shadow
         setIfMissing("tts.voice.strategy", "intelligent");    // intelligent | single | npc-mapped
         setIfMissing("tts.voice.default", "auto");            // provider voice or "auto"
@@ -72,6 +72,9 @@ public class OsrsTtsConfig {
         // ElevenLabs defaults
         setIfMissing("eleven.key", "");
         setIfMissing("eleven.model", "eleven_turbo_v2_5");
+        // Piper (local, offline) defaults
+        setIfMissing("piper.command", "piper");
+        setIfMissing("piper.model", "");
 
     // Feature toggles
     // Legacy combined overhead toggle (kept for backward compat) – new granular toggles below
@@ -290,6 +293,15 @@ public class OsrsTtsConfig {
     public String getElevenModel() { return config.getString("eleven.model", "eleven_turbo_v2_5"); }
     public void setElevenModel(String model) { config.setProperty("eleven.model", model); saveQuietly(); }
 
+    // Piper
+    public String getPiperCommand() { return config.getString("piper.command", "piper"); }
+    public void setPiperCommand(String command) { config.setProperty("piper.command", command); saveQuietly(); }
+    public String getPiperModel() {
+        String env = System.getenv("PIPER_MODEL");
+        return env != null && !env.isBlank() ? env : config.getString("piper.model", "");
+    }
+    public void setPiperModel(String model) { config.setProperty("piper.model", model); saveQuietly(); }
+
     // AWS (optional fallback)
     public String getAwsRegion() {
         String env = System.getenv("AWS_REGION");
@@ -193,22 +193,28 @@ public class OsrsTtsConfigPanel extends PluginPanel {
     clearFenken.setToolTipText("Remove stored voice for Dr Fenkenstrain so new mapping applies");
     clearAllAssign.setToolTipText("Remove ALL persisted NPC voice assignments");
     clearFenken.addActionListener(e -> {
-        try {
-            if (plugin != null && plugin.voiceRuntime != null) {
-                var store = plugin.voiceRuntime.getAssignmentStore();
+        if (plugin != null && plugin.voiceRuntime != null) {
+            plugin.voiceRuntime.getAssignmentStore().thenAccept(store -> {
                 store.remove("dr fenkenstrain");
                 store.remove("fenkenstrain");
+            }).whenComplete((v, ex) -> SwingUtilities.invokeLater(() -> {
+                if (ex != null) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(this, "Failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 refreshAssignmentStats();
                 JOptionPane.showMessageDialog(this, "Cleared Fenkenstrain assignments.", "Cleared", JOptionPane.INFORMATION_MESSAGE);
-            }
-        } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE); }
+            }));
+        }
     });
     clearAllAssign.addActionListener(e -> {
         if (plugin != null && plugin.voiceRuntime != null) {
             int confirm = JOptionPane.showConfirmDialog(this, "Really clear ALL NPC assignments?", "Confirm", JOptionPane.OK_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
             if (confirm == JOptionPane.OK_OPTION) {
-                plugin.voiceRuntime.getAssignmentStore().all().keySet().forEach(k -> plugin.voiceRuntime.getAssignmentStore().remove(k));
-                refreshAssignmentStats();
+                plugin.voiceRuntime.getAssignmentStore()
+                        .thenAccept(store -> store.all().keySet().forEach(store::remove))
+                        .whenComplete((v, ex) -> SwingUtilities.invokeLater(this::refreshAssignmentStats));
             }
         }
     });
@@ -913,9 +919,16 @@ public class OsrsTtsConfigPanel extends PluginPanel {
         try {
             com.example.osrstts.voice.VoiceRuntime rt = plugin != null ? plugin.voiceRuntime : null; // access via plugin
             if (rt == null) { assignmentsStatsLabel.setText("Assignments: (runtime not ready)"); return; }
-            int total = rt.getAssignmentStore().all().size();
-            long eleven = rt.getAssignmentStore().all().values().stream().filter(v -> v.provider != null && v.provider.toLowerCase().contains("eleven")).count();
-            long azure = rt.getAssignmentStore().all().values().stream().filter(v -> v.provider != null && v.provider.toLowerCase().contains("azure")).count();
+            com.example.osrstts.voice.VoiceAssignmentStore store = rt.getAssignmentStore().getNow(null);
+            if (store == null) {
+                // Still loading: show it once it is there rather than blocking the EDT
+                assignmentsStatsLabel.setText("Assignments: (loading)");
+                rt.getAssignmentStore().thenRun(() -> SwingUtilities.invokeLater(this::refreshAssignmentStats));
+                return;
+            }
+            int total = store.all().size();
+            long eleven = store.all().values().stream().filter(v -> v.provider != null && v.provider.toLowerCase().contains("eleven")).count();
+            long azure = store.all().values().stream().filter(v -> v.provider != null && v.provider.toLowerCase().contains("azure")).count();
             assignmentsStatsLabel.setText("Assignments: " + total + " (11L=" + eleven + ", Azure=" + azure + ")");
         } catch (Exception ex) {
             assignmentsStatsLabel.setText("Assignments: error");
@@ -11,6 +11,7 @@ import java.io.ByteArrayInputStream;
 import java.util.List;
 
 import com.example.osrstts.tts.AzureSpeechTtsClient;
+import com.example.osrstts.tts.PiperTtsClient;
 import com.example.osrstts.tts.PollyTtsClient;
 import com.example.osrstts.tts.TtsClient;
 import com.example.osrstts.voice.VoiceSelection;
@@ -43,7 +44,7 @@ public class OsrsTtsPanel extends JPanel {
 
     private void initializeComponents() {
         // Provider selection
-        providerSelector = new JComboBox<>(new String[]{"ElevenLabs", "Azure", "Polly"});
+        providerSelector = new JComboBox<>(new String[]{"ElevenLabs", "Azure", "Polly", "Piper"});
         
         // Azure settings
         azureKeyField = new JTextField(30);
@@ -371,13 +372,25 @@ public class OsrsTtsPanel extends JPanel {
                     }
                     client = new AzureSpeechTtsClient(key, region, cfg.getAudioOutputFormat());
                     sel = VoiceSelection.of(cfg.getNarratorVoice(), cfg.getNarratorStyle());
+                } else if ("Piper".equalsIgnoreCase(provider)) {
+                    client = new PiperTtsClient(cfg.getPiperCommand(), cfg.getPiperModel());
+                    if (!client.isConfigured(cfg)) {
+                        appendSafe("❌ Piper model not found: " + cfg.getPiperModel() + "\n");
+                        client.shutdown();
+                        return;
+                    }
+                    sel = VoiceSelection.of(null, null);
                 } else {
                     client = new PollyTtsClient();
                     sel = VoiceSelection.of("Joanna", null);
                 }
                 
-                byte[] audio = client.synthesize(text, sel);
-                playWavWithVolume(audio);
+                try {
+                    byte[] audio = client.synthesize(text, sel);
+                    playWavWithVolume(audio);
+                } finally {
+                    client.shutdown(); // Piper keeps a process running per client
+                }
                 appendSafe("✅ Test voice played successfully.\n");
             } catch (Exception ex) {
                 appendSafe("❌ Test failed: " + ex.getMessage() + "\n");
@@ -538,23 +551,29 @@ public class OsrsTtsPanel extends JPanel {
                     "The manuscript details the history of the ancient civilization that once thrived here."
                 };
                 
-                for (int i = 0; i < testTexts.length; i++) {
-                    String testText = testTexts[i];
-                    appendSafe(String.format("🧪 Test %d: '%s'\n", i + 1, testText.substring(0, Math.min(50, testText.length())) + "..."));
-                    
-                    try {
-                        // Create a mock voice runtime to test narration
-                        if (cfg != null) {
-                            com.example.osrstts.voice.VoiceRuntime testRuntime = new com.example.osrstts.voice.VoiceRuntime(cfg);
-                            testRuntime.speakNarrator(testText);
+                if (cfg == null) {
+                    appendSafe("❌ Configuration not available\n");
+                    return;
+                }
+                // One throwaway runtime for all samples; it owns threads (and with Piper a process) until shut down
+                com.example.osrstts.voice.VoiceRuntime testRuntime = new com.example.osrstts.voice.VoiceRuntime(cfg);
+                try {
+                    for (int i = 0; i < testTexts.length; i++) {
+                        String testText = testTexts[i];
+                        appendSafe(String.format("🧪 Test %d: '%s'\n", i + 1, testText.substring(0, Math.min(50, testText.length())) + "..."));
+                        
+                        try {
+                            byte[] audio = testRuntime.narratorAudio(testText).get(30, java.util.concurrent.TimeUnit.SECONDS);
+                            if (audio == null) throw new IllegalStateException("no audio from " + cfg.getProvider());
+                            playWavWithVolume(audio); // returns when playback has finished
                             appendSafe("✅ Narration test successful\n");
-                            Thread.sleep(2000); // Wait between tests
-                        } else {
-                            appendSafe("❌ Configuration not available\n");
+                            Thread.sleep(500); // Pause between tests
+                        } catch (Exception e) {
+                            appendSafe("❌ Narration test failed: " + e.getMessage() + "\n");
                         }
-                    } catch (Exception e) {
-                        appendSafe("❌ Narration test failed: " + e.getMessage() + "\n");
                     }
+                } finally {
+                    testRuntime.shutdown();
                 }
                 
                 appendSafe("📋 Narration testing completed!\n");
@@ -1,11 +1,23 @@
 package com.example.osrstts;
 
+import com.example.osrstts.dialog.DialogNpcResolver;
 import com.example.osrstts.dialog.NarrationDetector;
+import com.example.osrstts.dialog.NarrationScanScheduler;
+import com.example.osrstts.overhead.OverheadSpeechBudget;
+import com.example.osrstts.overhead.OverheadTextTracker;
+import com.example.osrstts.text.TextNormalizer;
+import com.example.osrstts.voice.SpeechDeduper;
 import com.example.osrstts.voice.VoiceRuntime;
 import com.google.inject.Provides;
+import net.runelite.api.GameState;
 import net.runelite.api.NPC;
 import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.events.BeforeRender;
+import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
+import net.runelite.api.events.NpcDespawned;
+import net.runelite.api.events.PlayerDespawned;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.events.ChatMessage;
@@ -26,6 +38,7 @@ import javax.swing.SwingUtilities;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -50,19 +63,28 @@ public class OsrsTtsPlugin extends Plugin {
     private OsrsTtsConfigPanel panel;
     private final NarrationDetector narrationDetector = new NarrationDetector();
     private String activeProvider;
-    // Overhead text tracking to avoid repeats
-    private final java.util.Map<Integer, String> npcOverheadHash = new java.util.HashMap<>();
-    private final java.util.Map<Integer, String> playerOverheadHash = new java.util.HashMap<>();
+    // Overhead text tracking to avoid repeats: one fingerprint per actor index, dropped on despawn
+    private final OverheadTextTracker npcOverheads = new OverheadTextTracker(4096);
+    private final OverheadTextTracker playerOverheads = new OverheadTextTracker(2048);
+    // Ranks NPC overhead lines by distance/visibility/age and caps spoken characters per second
+    private final OverheadSpeechBudget overheadBudget = OverheadSpeechBudget.fromSystemProperties();
 
     // Dialog continuation tracking
     private String lastIncompleteDialog = null;
     private String lastDialogSpeaker = null;
     private long lastDialogTime = 0;
     private static final long DIALOG_CONTINUATION_TIMEOUT_MS = 4500; // was 2700ms, allow more time to finish
+    // Incomplete dialog is synthesized speculatively right away and committed after this window unless superseded
+    private static final long DIALOG_SPECULATION_COMMIT_MS = Long.getLong("osrs.tts.dialogSpeculationMs", 1500L);
+    private VoiceRuntime.Prepared pendingSpeculation = null;
+    private long speculationsStarted = 0L;
+    private long speculationsCommitted = 0L;
+    private long speculationsDiscarded = 0L;
+    private final java.util.concurrent.atomic.AtomicLong speculationSavedMs = new java.util.concurrent.atomic.AtomicLong();
 
     // Track when complete dialog has been spoken to prevent duplicates
     private volatile boolean completeDialogSpoken = false;
-    private String lastCompleteDialogKey = null;
+    private long lastCompleteDialogKey = 0L; // 64-bit fingerprint of speaker + text, 0 when none
 
     // Add timeout cancellation mechanism
     private volatile boolean cancelIncompleteTimeout = false;
@@ -76,6 +98,13 @@ public class OsrsTtsPlugin extends Plugin {
 
     // Background scheduler for non-blocking delays
     private ScheduledExecutorService ttsScheduler;
+    // Debounced follow-up narration scans after widget loads
+    private NarrationScanScheduler scanScheduler;
+    // Narration text analysis runs here, off the client thread
+    private ExecutorService narrationWorker;
+    // Client-thread time spent in this plugin per frame
+    private final ClientThreadTimer clientTime = new ClientThreadTimer();
+    private long statsTicks = 0L;
 
     // Track recent dialog widget activity to gate chat/narration during cutscenes
     private volatile long lastDialogWidgetAtMs = 0L;
@@ -88,9 +117,12 @@ public class OsrsTtsPlugin extends Plugin {
     @Override
     protected void startUp() {
         log.info("OSRS TTS starting");
+        long t0 = System.nanoTime();
         config = new OsrsTtsConfig();
         syncConfigFromRuneLite();
+        long tConfig = System.nanoTime();
         rebuildRuntime("startup");
+        long tRuntime = System.nanoTime();
 
         // Set up dialog completion/suppression callback for NarrationDetector
         narrationDetector.setDialogCompletionCallback(this::onNarrationDialogFoundCallback);
@@ -101,8 +133,18 @@ public class OsrsTtsPlugin extends Plugin {
             t.setDaemon(true);
             return t;
         });
+        scanScheduler = new NarrationScanScheduler(ttsScheduler, clientThread::invokeLater, this::runScheduledScan, isDebug());
+        narrationWorker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "osrs-tts-narration");
+            t.setDaemon(true);
+            return t;
+        });
+        narrationDetector.setAnalysisExecutor(narrationWorker);
 
         SwingUtilities.invokeLater(this::addSidebar);
+        long tEnd = System.nanoTime();
+        log.info("OSRS TTS startUp took {}ms: config={}ms runtime={}ms executors={}ms (runtime components continue loading in the background)",
+                (tEnd - t0) / 1_000_000, (tConfig - t0) / 1_000_000, (tRuntime - tConfig) / 1_000_000, (tEnd - tRuntime) / 1_000_000);
     }
 
     private void addSidebar() {
@@ -128,11 +170,27 @@ public class OsrsTtsPlugin extends Plugin {
         }
         navButton = null;
         panel = null;
+        if (voiceRuntime != null) {
+            try { voiceRuntime.shutdown(); } catch (Exception ignored) {}
+        }
         voiceRuntime = null;
+        discardSpeculation();
+        if (isDebug()) log.info("Dialog speculation: {}", getSpeculationStats());
+        if (scanScheduler != null) {
+            if (isDebug()) log.info("Narration scan scheduler: {}", scanScheduler.getStats());
+            scanScheduler.shutdown();
+            scanScheduler = null;
+        }
         if (ttsScheduler != null) {
             try { ttsScheduler.shutdownNow(); } catch (Exception ignored) {}
             ttsScheduler = null;
         }
+        narrationDetector.setAnalysisExecutor(null);
+        if (narrationWorker != null) {
+            try { narrationWorker.shutdownNow(); } catch (Exception ignored) {}
+            narrationWorker = null;
+        }
+        if (isDebug()) log.info("Client thread time: {} narration: {}", clientTime.getStats(), narrationDetector.getScanStats());
     }
 
     private void syncConfigFromRuneLite() {
@@ -145,6 +203,8 @@ public class OsrsTtsPlugin extends Plugin {
         try { config.setPlayerVoice(rlConfig.playerVoice()); } catch (Throwable ignored) {}
         try { config.setElevenKey(rlConfig.elevenKey()); } catch (Throwable ignored) {}
         try { config.setElevenModel(rlConfig.elevenModel()); } catch (Throwable ignored) {}
+        try { config.setPiperModel(rlConfig.piperModel()); } catch (Throwable ignored) {}
+        try { config.setPiperCommand(rlConfig.piperCommand()); } catch (Throwable ignored) {}
     }
 
     private String getSelectedRegion() {
@@ -158,7 +218,14 @@ public class OsrsTtsPlugin extends Plugin {
     private void rebuildRuntime(String reason) {
         try {
             long t0 = System.currentTimeMillis();
-            voiceRuntime = new VoiceRuntime(config);
+            VoiceRuntime previous = voiceRuntime;
+            VoiceRuntime runtime = new VoiceRuntime(config);
+            voiceRuntime = runtime;
+            runtime.startConnectionWarmup();
+            runtime.whenInitialized().thenAccept(timeline -> log.info("Runtime components ready (reason={}): {}", reason, timeline));
+            if (previous != null) {
+                try { previous.shutdown(); } catch (Exception ignored) {}
+            }
             activeProvider = config.getProvider();
             log.info("Rebuilt runtime provider={} reason={} in {}ms", activeProvider, reason, System.currentTimeMillis()-t0);
         } catch (Exception e) {
@@ -182,8 +249,18 @@ public class OsrsTtsPlugin extends Plugin {
         if ("testVoice".equals(evt.getKey())) testVoice();
     }
 
+    @Subscribe
+    public void onBeforeRender(BeforeRender event) {
+        clientTime.endFrame();
+    }
+
     @Subscribe
     public void onWidgetLoaded(WidgetLoaded event) {
+        long t0 = System.nanoTime();
+        try { handleWidgetLoaded(event); } finally { clientTime.add(t0); }
+    }
+
+    private void handleWidgetLoaded(WidgetLoaded event) {
         if (voiceRuntime == null || config == null) return;
         boolean debug = isDebug();
 
@@ -236,17 +313,8 @@ public class OsrsTtsPlugin extends Plugin {
                     log.info("Widget group {} matches quest/dialog pattern - scheduling delayed scans", g);
                 }
 
-                scheduleDelayedScan(100, g, debug);
-                scheduleDelayedScan(250, g, debug);
-                scheduleDelayedScan(500, g, debug);
-                scheduleDelayedScan(800, g, debug);   // extra scans to catch late-populating text
-                scheduleDelayedScan(1200, g, debug);
-
-                // If we have incomplete dialog, try to extract full text from widget immediately
-                if (lastIncompleteDialog != null) {
-                    scheduleDialogCompletionCheck(50, debug);
-                    scheduleDialogCompletionCheck(400, debug);
-                }
+                // Rescans catch late-populating text; with incomplete dialog pending, start almost immediately
+                if (scanScheduler != null) scanScheduler.request(g, lastIncompleteDialog != null ? 50 : 0);
             } else if (debug) {
                 log.info("Widget group {} does not match quest/dialog pattern - no delayed scans", g);
             }
@@ -257,57 +325,28 @@ public class OsrsTtsPlugin extends Plugin {
         if (debug) log.info("=== END WIDGET LOADED DEBUG ===");
     }
 
-    private void scheduleDelayedScan(int delayMs, int groupId, boolean debug) {
-        final long start = System.currentTimeMillis();
-        try {
-            clientThread.invokeLater(() -> {
-                if (System.currentTimeMillis() - start < delayMs) return false;
-                try {
-                    if (voiceRuntime == null) return true;
-                    narrationDetector.forceNextScan();
-                    narrationDetector.setLastLoadedGroupId(groupId);
-                    narrationDetector.maybeNarrateOpenText(client, config, voiceRuntime);
-                    if (debug) log.info("Delayed narration scan {}ms groupId={}", delayMs, groupId);
-                } catch (Exception ignored) {}
-                return true;
-            });
-        } catch (Exception e) {
-            if (debug) log.debug("scheduleDelayedScan failed {}ms: {}", delayMs, e.getMessage());
-        }
-    }
-
-    private void scheduleDialogCompletionCheck(int delayMs, boolean debug) {
-        final long start = System.currentTimeMillis();
+    // Client thread: one debounced rescan; true tells the scheduler to stop the burst
+    private boolean runScheduledScan(int groupId) {
+        if (voiceRuntime == null) return true;
+        long t0 = System.nanoTime();
         try {
-            clientThread.invokeLater(() -> {
-                if (System.currentTimeMillis() - start < delayMs) return false;
-                try {
-                    if (lastIncompleteDialog != null && voiceRuntime != null) {
-                        if (debug) {
-                            log.info("DIALOG COMPLETION CHECK - Attempting to extract full text from widgets");
-                        }
-
-                        // Try to force narration detection to get full text from current widgets
-                        narrationDetector.forceNextScan();
-
-                        // The NarrationDetector might have the full text - let's check if it would speak something
-                        // that contains our incomplete dialog as a substring
-                        if (debug) {
-                            log.info("DIALOG COMPLETION CHECK - Forced narration scan completed");
-                        }
-                    }
-                } catch (Exception e) {
-                    if (debug) log.error("Dialog completion check failed: {}", e.getMessage());
-                }
-                return true;
-            });
-        } catch (Exception e) {
-            if (debug) log.debug("scheduleDialogCompletionCheck failed {}ms: {}", delayMs, e.getMessage());
+            narrationDetector.forceNextScan();
+            narrationDetector.setLastLoadedGroupId(groupId);
+            narrationDetector.maybeNarrateOpenText(client, config, voiceRuntime);
+            if (isDebug()) log.info("Delayed narration scan groupId={} settled={}", groupId, narrationDetector.isSettled());
+            return narrationDetector.isSettled();
+        } finally {
+            clientTime.add(t0);
         }
     }
 
     @Subscribe
     public void onChatMessage(ChatMessage evt) {
+        long t0 = System.nanoTime();
+        try { handleChatMessage(evt); } finally { clientTime.add(t0); }
+    }
+
+    private void handleChatMessage(ChatMessage evt) {
         if (voiceRuntime == null || config == null || evt == null) return;
         boolean debug = isDebug();
 
@@ -366,13 +405,13 @@ public class OsrsTtsPlugin extends Plugin {
                             text.endsWith(".") || text.endsWith("!") || text.endsWith("?") || text.endsWith("..."));
 
                         // Check for common truncation patterns
-                        if (text.length() > 0 && !text.matches(".*[.!?]\\s*$") && text.length() > 50) {
+                        if (text.length() > 0 && !TextNormalizer.endsSentence(text) && text.length() > 50) {
                             log.warn("POTENTIAL TRUNCATION DETECTED - Dialog text may be incomplete!");
                         }
                     }
 
                     // Check if this might be a continuation of a previous incomplete dialog
-                    boolean isIncomplete = text.length() > 50 && !text.matches(".*[.!?]\\s*$");
+                    boolean isIncomplete = text.length() > 50 && !TextNormalizer.endsSentence(text);
                     boolean isContinuation = lastIncompleteDialog != null &&
                                            spk.equalsIgnoreCase(lastDialogSpeaker) &&
                                            (currentTime - lastDialogTime) < DIALOG_CONTINUATION_TIMEOUT_MS;
@@ -394,7 +433,8 @@ public class OsrsTtsPlugin extends Plugin {
                             log.info("CONCATENATED DIALOG - Combined text: '{}'", finalText);
                             log.info("CONCATENATED DIALOG - Combined length: {}", finalText.length());
                         }
-                        // Clear the incomplete dialog since we're processing it
+                        // Clear the incomplete dialog since we're processing it; its speculative audio is stale
+                        discardSpeculation();
                         lastIncompleteDialog = null;
                         lastDialogSpeaker = null;
                         lastDialogTime = 0;
@@ -412,14 +452,19 @@ public class OsrsTtsPlugin extends Plugin {
                             log.info("STORING INCOMPLETE DIALOG for potential continuation - Key: {}", incompleteDialogKey);
                         }
 
-                        // Don't speak yet - wait for potential continuation
-                        // Schedule a delayed task (off the client thread) to speak it if no continuation comes
+                        // Start synthesis now so the line is ready the moment we know it is final
+                        startSpeculation(spk, text);
+
+                        // Don't play yet - wait briefly for a continuation or the full widget text
+                        // Schedule a delayed task (off the client thread) to commit it if no continuation comes
                         if (ttsScheduler != null) {
                             final String pendingSpeaker = spk;
                             final String pendingText = text;
+                            final long arrivedAt = currentTime;
                             ttsScheduler.schedule(() -> {
                                 // Post back to the client thread for safe client/widget access
                                 clientThread.invoke(() -> {
+                                    long timeoutStart = System.nanoTime();
                                     try {
                                         // Try a final widget scan just before speaking
                                         try {
@@ -437,12 +482,7 @@ public class OsrsTtsPlugin extends Plugin {
                                                 log.info("TIMEOUT - Speaking incomplete dialog as-is: '{}'", pendingText);
                                             }
 
-                                            String self = localPlayerName();
-                                            if (self != null && pendingSpeaker.equalsIgnoreCase(self)) {
-                                                voiceRuntime.speakPlayer(pendingText);
-                                            } else {
-                                                voiceRuntime.speakNpc(pendingSpeaker.isEmpty()?"NPC":pendingSpeaker, pendingText, voiceRuntime.inferTags(pendingSpeaker));
-                                            }
+                                            commitSpeculation(pendingSpeaker, pendingText, arrivedAt);
 
                                             // Record timed-out dialog for grace completion by widget
                                             lastTimedOutDialogText = pendingText;
@@ -459,9 +499,11 @@ public class OsrsTtsPlugin extends Plugin {
                                         }
                                     } catch (Exception e) {
                                         if (debug) log.error("Error in delayed dialog processing: {}", e.getMessage());
+                                    } finally {
+                                        clientTime.add(timeoutStart);
                                     }
                                 });
-                            }, DIALOG_CONTINUATION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                            }, DIALOG_SPECULATION_COMMIT_MS, TimeUnit.MILLISECONDS);
                         }
 
                         return; // Don't process this dialog immediately
@@ -469,10 +511,10 @@ public class OsrsTtsPlugin extends Plugin {
 
                     if (!finalText.isEmpty()) {
                         // Create dialog key for duplicate prevention
-                        String dialogKey = spk + "|" + finalText.hashCode();
+                        long dialogKey = SpeechDeduper.fingerprint(spk, finalText);
 
                         // Check if we already spoke this complete dialog
-                        if (dialogKey.equals(lastCompleteDialogKey)) {
+                        if (dialogKey == lastCompleteDialogKey) {
                             if (debug) {
                                 log.info("DUPLICATE DIALOG DETECTED - Skipping: '{}'", finalText);
                             }
@@ -487,7 +529,7 @@ public class OsrsTtsPlugin extends Plugin {
                             voiceRuntime.speakPlayer(finalText);
                         } else {
                             if (debug) log.info("Speaking as NPC '{}': '{}'", spk, finalText);
-                            voiceRuntime.speakNpc(spk.isEmpty()?"NPC":spk, finalText, voiceRuntime.inferTags(spk));
+                            voiceRuntime.speakNpc(DialogNpcResolver.resolveNpcId(client, spk), spk.isEmpty()?"NPC":spk, finalText, voiceRuntime.inferTags(spk));
                         }
                         return;
                     }
@@ -531,12 +573,12 @@ public class OsrsTtsPlugin extends Plugin {
             }
             if (npcChan && !speaker.isBlank()) {
                 if (debug) log.info("Speaking as NPC '{}' (NPC channel): '{}'", speaker, msg);
-                voiceRuntime.speakNpc(speaker, msg, voiceRuntime.inferTags(speaker));
+                voiceRuntime.speakNpc(DialogNpcResolver.resolveNpcId(client, speaker), speaker, msg, voiceRuntime.inferTags(speaker));
                 return;
             }
             if (!speaker.isBlank() && !playerChan) {
                 if (debug) log.info("Speaking as NPC '{}' (other channel): '{}'", speaker, msg);
-                voiceRuntime.speakNpc(speaker, msg, voiceRuntime.inferTags(speaker));
+                voiceRuntime.speakNpc(DialogNpcResolver.resolveNpcId(client, speaker), speaker, msg, voiceRuntime.inferTags(speaker));
             }
         } catch (Exception e) {
             if (isDebug()) log.error("Chat handling error: {}", e.getMessage(), e);
@@ -547,6 +589,15 @@ public class OsrsTtsPlugin extends Plugin {
 
     @Subscribe
     public void onGameTick(GameTick tick) {
+        long t0 = System.nanoTime();
+        try { handleGameTick(); } finally { clientTime.add(t0); }
+        if (isDebug() && ++statsTicks % 100 == 0) {
+            log.info("Client thread time: {} narration: {}", clientTime.getStats(), narrationDetector.getScanStats());
+            if (voiceRuntime != null) log.info("Playback: {}", voiceRuntime.getPlaybackStats());
+        }
+    }
+
+    private void handleGameTick() {
         if (voiceRuntime == null || config == null || client == null) return;
     // Legacy master toggle still honored; then granular toggles decide which categories run
 	if (!config.isOverheadEnabled()) {
@@ -554,51 +605,79 @@ public class OsrsTtsPlugin extends Plugin {
             return;
         }
         try {
-            // NPC overhead TTS disabled as requested
-            /*
             if (config.isNpcOverheadEnabled()) {
+                // Offer changed lines to the speech budget; only its top picks reach synthesis
+                long now = System.currentTimeMillis();
+                Player local = client.getLocalPlayer();
+                WorldPoint here = local != null ? local.getWorldLocation() : null;
                 for (NPC npc : client.getNpcs()) {
                     if (npc == null) continue;
                     String txt = npc.getOverheadText();
                     if (txt == null || txt.isBlank()) continue;
+                    if (!npcOverheads.changed(npc.getIndex(), txt)) continue; // same as last tick
                     String clean = stripTags(txt).trim();
                     if (clean.isEmpty()) continue;
-                    int id = npc.getIndex();
-                    String hash = Integer.toHexString((clean+"|"+id).hashCode());
-                    String prev = npcOverheadHash.get(id);
-                    if (hash.equals(prev)) continue; // same as last tick
-                    npcOverheadHash.put(id, hash);
-                    String name = sanitizeName(npc.getName());
+                    WorldPoint at = npc.getWorldLocation();
+                    int distance = here != null && at != null ? at.distanceTo(here) : -1;
+                    boolean onScreen = npc.getCanvasTilePoly() != null;
+                    overheadBudget.offer(npc.getIndex(), npc.getId(), npc.getName(), clean, distance, onScreen, now);
+                }
+                VoiceRuntime rt = voiceRuntime;
+                for (OverheadSpeechBudget.Candidate c : overheadBudget.drain(now, c -> rt.isRepeatOverhead("npc#" + c.actorIndex, c.text))) {
+                    String name = sanitizeName(c.speaker);
                     if (name.isBlank()) name = "NPC";
-                    voiceRuntime.speakNpc(name, clean, voiceRuntime.inferTags(name));
+                    rt.speakOverhead("npc#" + c.actorIndex, c.npcId, name, c.text, rt.inferTags(name));
                 }
+                if (isDebug() && statsTicks % 100 == 0) log.info("Overhead speech budget: {}", overheadBudget.getStats());
             }
-            */
 
             if (config.isPlayerOverheadEnabled()) {
                 for (Player p : client.getPlayers()) {
                     if (p == null) continue;
                     String txt = p.getOverheadText();
                     if (txt == null || txt.isBlank()) continue;
+                    // Compare the raw text first so unchanged players cost no allocation
+                    if (!playerOverheads.changed(p.getId(), txt)) continue;
                     String clean = stripTags(txt).trim();
                     if (clean.isEmpty()) continue;
-                    int id = System.identityHashCode(p); // stable for session
-                    String hash = Integer.toHexString((clean+"|P|"+id).hashCode());
-                    String prev = playerOverheadHash.get(id);
-                    if (hash.equals(prev)) continue;
-                    playerOverheadHash.put(id, hash);
                     String self = localPlayerName();
                     String name = sanitizeName(p.getName());
                     if (self != null && name.equalsIgnoreCase(self)) {
                         voiceRuntime.speakPlayer(clean);
                     } else {
-                        voiceRuntime.speakNpc(name.isBlank()?"Player":name, clean, voiceRuntime.inferTags(name));
+                        voiceRuntime.speakOverhead("player:" + name, null, name.isBlank()?"Player":name, clean, voiceRuntime.inferTags(name));
                     }
                 }
             }
         } catch (Exception ignored) { }
     }
 
+    @Subscribe
+    public void onPlayerDespawned(PlayerDespawned evt) {
+        Player p = evt.getPlayer();
+        if (p != null) playerOverheads.remove(p.getId());
+    }
+
+    @Subscribe
+    public void onNpcDespawned(NpcDespawned evt) {
+        NPC npc = evt.getNpc();
+        if (npc != null) {
+            npcOverheads.remove(npc.getIndex());
+            overheadBudget.remove(npc.getIndex());
+        }
+    }
+
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged evt) {
+        // Actor indices are per world/session; despawns aren't sent when hopping or logging out
+        GameState state = evt.getGameState();
+        if (state == GameState.HOPPING || state == GameState.LOGIN_SCREEN) {
+            playerOverheads.clear();
+            npcOverheads.clear();
+            overheadBudget.clear();
+        }
+    }
+
     private String localPlayerName() {
         try { return client.getLocalPlayer() != null ? sanitizeName(client.getLocalPlayer().getName()) : null; } catch (Exception e) { return null; }
     }
@@ -623,16 +702,70 @@ public class OsrsTtsPlugin extends Plugin {
         });
     }
 
+    // Client thread. Begin synthesizing a possibly-partial line; any earlier pending line is superseded.
+    private void startSpeculation(String spk, String text) {
+        discardSpeculation();
+        if (voiceRuntime == null) return;
+        try {
+            String self = localPlayerName();
+            pendingSpeculation = (self != null && spk.equalsIgnoreCase(self))
+                    ? voiceRuntime.preparePlayer(text)
+                    : voiceRuntime.prepareNpc(DialogNpcResolver.resolveNpcId(client, spk), spk.isEmpty() ? "NPC" : spk, text, voiceRuntime.inferTags(spk));
+            speculationsStarted++;
+        } catch (Exception e) {
+            pendingSpeculation = null;
+            if (isDebug()) log.debug("Dialog speculation failed to start: {}", e.getMessage());
+        }
+    }
+
+    // Client thread. The partial line turned out to be final: play its speculative audio as soon as it is ready.
+    private void commitSpeculation(String spk, String text, long arrivedAt) throws Exception {
+        VoiceRuntime.Prepared prepared = pendingSpeculation;
+        pendingSpeculation = null;
+        if (prepared == null) {
+            // Speculation could not start; speak the old way
+            String self = localPlayerName();
+            if (self != null && spk.equalsIgnoreCase(self)) {
+                voiceRuntime.speakPlayer(text);
+            } else {
+                voiceRuntime.speakNpc(DialogNpcResolver.resolveNpcId(client, spk), spk.isEmpty()?"NPC":spk, text, voiceRuntime.inferTags(spk));
+            }
+            return;
+        }
+        if (!prepared.commit()) return;
+        speculationsCommitted++;
+        final long committedAt = System.currentTimeMillis();
+        prepared.whenReady().thenRun(() -> {
+            // Previously: wait out the full continuation window, then synthesize
+            long synthMs = prepared.readyAtMs() - prepared.startedAtMs();
+            long before = arrivedAt + DIALOG_CONTINUATION_TIMEOUT_MS + synthMs;
+            long after = Math.max(committedAt, prepared.readyAtMs());
+            speculationSavedMs.addAndGet(Math.max(0L, before - after));
+        });
+    }
+
+    // Client thread. Drop pending speculative audio (continuation or full widget text arrived).
+    private void discardSpeculation() {
+        VoiceRuntime.Prepared prepared = pendingSpeculation;
+        pendingSpeculation = null;
+        if (prepared != null && prepared.discard()) speculationsDiscarded++;
+    }
+
+    public String getSpeculationStats() {
+        return "started=" + speculationsStarted + " committed=" + speculationsCommitted
+                + " discarded=" + speculationsDiscarded + " latencySavedMs=" + speculationSavedMs.get();
+    }
+
     // Decide if NarrationDetector should speak a dialog it found in widgets.
     // Return true to allow widget speech, false to suppress (chat already handled it).
     private boolean onNarrationDialogFoundCallback(String speaker, String text) {
         boolean debug = isDebug();
         String spk = sanitizeName(speaker);
-        String dialogKey = spk + "|" + text.hashCode();
+        long dialogKey = SpeechDeduper.fingerprint(spk, text);
 
         // If chat already spoke this complete line, suppress widget speech
-        if (dialogKey.equals(lastCompleteDialogKey)) {
-            if (debug) log.info("Widget dialog duplicate - suppressed: '{}'", dialogKey);
+        if (dialogKey == lastCompleteDialogKey) {
+            if (debug) log.info("Widget dialog duplicate - suppressed: '{}'", text);
             return false;
         }
 
@@ -655,6 +788,7 @@ public class OsrsTtsPlugin extends Plugin {
                     log.info("  Complete: '{}'", text);
                 }
                 cancelIncompleteTimeout = true;
+                discardSpeculation(); // the widget speaks the full text instead
                 lastIncompleteDialog = null;
                 lastDialogSpeaker = null;
                 lastDialogTime = 0;
@@ -715,18 +849,12 @@ public class OsrsTtsPlugin extends Plugin {
     }
 
     private static String normalizeForContain(String s) {
-        if (s == null) return "";
-        String out = s.toLowerCase(Locale.ROOT);
-        out = out.replaceAll("<[^>]*>", ""); // strip tags defensively
-        out = out.replace('\u00A0', ' '); // nbsp to space
-        out = out.replaceAll("[^a-z0-9 ]+", " "); // remove punctuation/specials
-        out = out.replaceAll("\\s+", " ").trim();
-        return out;
+        return TextNormalizer.foldForContain(s);
     }
 
     private boolean isDebug() { return "true".equalsIgnoreCase(System.getProperty(DEBUG_PROP, "false")); }
-    private String stripTags(String in) { return in == null ? "" : in.replaceAll("<[^>]*>", ""); }
-    private String sanitizeName(String in) { return in == null ? "" : stripTags(in).replaceAll("[^A-Za-z0-9 _-]"," ").trim(); }
+    private String stripTags(String in) { return TextNormalizer.stripTags(in); }
+    private String sanitizeName(String in) { return TextNormalizer.sanitizeName(in); }
 
     private static BufferedImage createIcon() {
         int s = 16;
@@ -6,12 +6,12 @@ import net.runelite.client.config.*;
 public interface OsrsTtsRlConfig extends Config {
 
     // --- Provider Selection ---
-    enum Provider { Azure, ElevenLabs, Polly }
+    enum Provider { Azure, ElevenLabs, Polly, Piper }
 
     @ConfigItem(
 	    keyName = "provider",
 	    name = "Provider",
-	    description = "TTS provider to use (Azure / ElevenLabs / Polly)",
+	    description = "TTS provider to use (Azure / ElevenLabs / Polly / Piper)",
 	    position = 0
     )
     default Provider provider() { return Provider.ElevenLabs; }
@@ -78,6 +78,23 @@ public interface OsrsTtsRlConfig extends Config {
     )
     default String elevenModel() { return "eleven_turbo_v2_5"; }
 
+    // --- Piper (local) ---
+    @ConfigItem(
+	    keyName = "piperModel",
+	    name = "Piper Voice Model",
+	    description = "Path to a Piper .onnx voice model; enables offline speech and the offline fallback",
+	    position = 25
+    )
+    default String piperModel() { return ""; }
+
+    @ConfigItem(
+	    keyName = "piperCommand",
+	    name = "Piper Command",
+	    description = "Piper executable (full path if it is not on PATH)",
+	    position = 26
+    )
+    default String piperCommand() { return "piper"; }
+
     // Narrator
     @ConfigItem(
 	    keyName = "narratorEnabled",
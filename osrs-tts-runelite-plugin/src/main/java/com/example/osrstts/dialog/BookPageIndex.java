@@ -0,0 +1,238 @@
+package com.example.osrstts.dialog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Pages of books/diaries seen this session, keyed by (title, page hash). A page is a run of body lines;
+ * its hash is a polynomial rolling hash over per-line FNV hashes, so any known page can be found inside
+ * whatever the widget currently shows (a flipped-back spread, a scroll that grew, a reopened book) with one
+ * prefix-hash pass per distinct page length. Pages remember their neighbours in reading order and hold their
+ * synthesized audio, so re-reading is served from memory and the next page in the direction of travel can be
+ * prefetched.
+ * Used only from the narration analysis thread.
+ */
+final class BookPageIndex {
+    private static final int MAX_BOOKS = 32;
+    private static final int MAX_PAGES_PER_BOOK = 200;
+    // Audio is held only for the most recently touched pages; older ones fall back to the disk cache
+    private static final int AUDIO_PAGES = Integer.getInteger("osrs.tts.bookAudioPages", 24);
+    private static final long BASE = 0x9E3779B97F4A7C15L; // odd multiplier; arithmetic wraps mod 2^64
+
+    static final class Page {
+        final int lineCount;
+        final long hash;
+        final String text;
+        Page prev;
+        Page next;
+        CompletableFuture<byte[]> audio; // body-only narration, null when not retained
+
+        Page(int lineCount, long hash, String text) {
+            this.lineCount = lineCount;
+            this.hash = hash;
+            this.text = text;
+        }
+    }
+
+    private static final class Book {
+        final Map<Long, Page> pages = new HashMap<>();
+        final List<Integer> lengths = new ArrayList<>(); // distinct page line counts, longest first
+        Page current; // last page narrated from this book
+
+        Page find(int lineCount, long hash, List<String> lines, int from) {
+            Page p = pages.get(hash);
+            if (p == null || p.lineCount != lineCount) return null;
+            // Confirm on text so a hash collision can never replay the wrong page
+            return p.text.equals(String.join("\n", lines.subList(from, from + lineCount))) ? p : null;
+        }
+
+        void add(Page p) {
+            if (pages.size() >= MAX_PAGES_PER_BOOK) return;
+            pages.put(p.hash, p);
+            if (!lengths.contains(p.lineCount)) {
+                lengths.add(p.lineCount);
+                lengths.sort((a, b) -> Integer.compare(b, a));
+            }
+        }
+    }
+
+    /** What to narrate for one view of a book, or null when nothing past the current page is visible. */
+    static final class View {
+        final List<Page> pages; // pages to narrate, in reading order
+        final boolean known;    // every page had been seen before
+        final boolean backward; // flipped back to pages that come before the one read last
+
+        View(List<Page> pages, boolean known, boolean backward) {
+            this.pages = pages;
+            this.known = known;
+            this.backward = backward;
+        }
+
+        String text() {
+            if (pages.size() == 1) return pages.get(0).text;
+            StringBuilder sb = new StringBuilder();
+            for (Page p : pages) {
+                if (sb.length() > 0) sb.append('\n');
+                sb.append(p.text);
+            }
+            return sb.toString();
+        }
+    }
+
+    private final Map<String, Book> books = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Book> eldest) {
+            return size() > MAX_BOOKS;
+        }
+    };
+    // Pages currently holding audio, most recent last
+    private final LinkedHashMap<Page, Boolean> audioLru = new LinkedHashMap<>(32, 0.75f, true);
+
+    private long views;
+    private long knownViews;
+    private long pagesIndexed;
+    private long audioReused;
+    private long prefetched;
+
+    /**
+     * Split the visible body into known pages and new runs, register the new runs as pages linked after
+     * the page before them, and return the pages past the one last narrated from this book.
+     * @param reopened the book was just opened, so nothing on screen counts as already read
+     */
+    View view(String title, List<String> lines, boolean reopened) {
+        if (title == null || lines == null || lines.isEmpty()) return null;
+        views++;
+        Book book = books.computeIfAbsent(title.toLowerCase(Locale.ROOT), k -> new Book());
+        if (reopened) book.current = null;
+        int n = lines.size();
+        long[] prefix = new long[n + 1];
+        long[] pow = new long[n + 1];
+        pow[0] = 1L;
+        for (int i = 0; i < n; i++) {
+            prefix[i + 1] = prefix[i] * BASE + WidgetTextCache.hash(lines.get(i));
+            pow[i + 1] = pow[i] * BASE;
+        }
+
+        // Greedy left-to-right segmentation, preferring the longest known page at each line
+        List<Page> segments = new ArrayList<>();
+        List<Page> fresh = new ArrayList<>();
+        int freshStart = -1;
+        int i = 0;
+        while (i < n) {
+            Page match = null;
+            for (int len : book.lengths) {
+                if (i + len > n) continue;
+                long h = prefix[i + len] - prefix[i] * pow[len];
+                match = book.find(len, h, lines, i);
+                if (match != null) break;
+            }
+            if (match == null) {
+                if (freshStart < 0) freshStart = i;
+                i++;
+                continue;
+            }
+            if (freshStart >= 0) {
+                fresh.add(newPage(book, lines, prefix, pow, freshStart, i));
+                segments.add(fresh.get(fresh.size() - 1));
+                freshStart = -1;
+            }
+            segments.add(match);
+            i += match.lineCount;
+        }
+        if (freshStart >= 0) {
+            fresh.add(newPage(book, lines, prefix, pow, freshStart, n));
+            segments.add(fresh.get(fresh.size() - 1));
+        }
+
+        // Reading order: a page seen for the first time follows whatever was read just before it.
+        // Known pages keep their links so flipping back doesn't rewrite the order.
+        Page previous = book.current;
+        Page before = previous;
+        for (Page p : segments) {
+            if (before != null && fresh.contains(p)) {
+                p.prev = before;
+                if (before.next == null) before.next = p;
+            }
+            before = p;
+        }
+
+        // Only narrate what follows the current page when it is still on screen (a scroll that grew)
+        int from = segments.indexOf(book.current) + 1;
+        boolean allKnown = fresh.isEmpty();
+        if (allKnown) knownViews++;
+        if (from >= segments.size()) return null;
+        List<Page> toSpeak = new ArrayList<>(segments.subList(from, segments.size()));
+        book.current = toSpeak.get(toSpeak.size() - 1);
+        return new View(toSpeak, allKnown, precedes(book.current, previous));
+    }
+
+    // Whether the page read last is reachable forward from page, i.e. the reader moved back
+    private static boolean precedes(Page page, Page previous) {
+        if (previous == null || page == previous) return false;
+        Page p = page.next;
+        for (int steps = 0; p != null && steps < MAX_PAGES_PER_BOOK; steps++, p = p.next) {
+            if (p == previous) return true;
+        }
+        return false;
+    }
+
+    private Page newPage(Book book, List<String> lines, long[] prefix, long[] pow, int from, int to) {
+        int len = to - from;
+        Page p = new Page(len, prefix[to] - prefix[from] * pow[len], String.join("\n", lines.subList(from, to)));
+        book.add(p);
+        pagesIndexed++;
+        return p;
+    }
+
+    /** Audio for a page, reusing the retained future when it is still good. */
+    CompletableFuture<byte[]> audioFor(Page page, Function<String, CompletableFuture<byte[]>> synth) {
+        CompletableFuture<byte[]> a = page.audio;
+        boolean usable = a != null && (!a.isDone() || (!a.isCompletedExceptionally() && a.getNow(null) != null));
+        if (usable) {
+            audioReused++;
+        } else {
+            a = synth.apply(page.text);
+            page.audio = a;
+        }
+        retain(page);
+        return a;
+    }
+
+    /**
+     * Warm the page the reader is heading to, so the next flip starts playing immediately: the one after the
+     * view when paging forward, the one before it when paging back. The page behind the reader was just heard
+     * (on a first read as part of the opening preface), so synthesizing it on its own would rarely be played.
+     */
+    void prefetchAhead(View view, Function<String, CompletableFuture<byte[]>> synth) {
+        Page p = view.backward ? view.pages.get(0).prev : view.pages.get(view.pages.size() - 1).next;
+        if (p == null || p.audio != null) return;
+        p.audio = synth.apply(p.text);
+        prefetched++;
+        retain(p);
+    }
+
+    private void retain(Page page) {
+        audioLru.put(page, Boolean.TRUE);
+        Iterator<Page> it = audioLru.keySet().iterator();
+        while (audioLru.size() > AUDIO_PAGES && it.hasNext()) {
+            Page old = it.next();
+            old.audio = null;
+            it.remove();
+        }
+    }
+
+    String getStats() {
+        int pages = 0;
+        for (Book b : books.values()) pages += b.pages.size();
+        return "books=" + books.size() + " pages=" + pages + " views=" + views + " knownViews=" + knownViews
+                + " pagesIndexed=" + pagesIndexed + " audioReused=" + audioReused + " prefetched=" + prefetched
+                + " audioHeld=" + audioLru.size();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.osrstts.dialog;
 
+import com.example.osrstts.text.TextNormalizer;
 import com.example.osrstts.voice.VoiceRuntime;
 import net.runelite.api.events.ChatMessage;
 import net.runelite.client.eventbus.EventBus;
@@ -25,15 +26,11 @@ public class DialogListener {
             String npc = chatMessage.getName();
             String msg = chatMessage.getMessage();
             if (npc != null && !npc.isEmpty() && msg != null && !msg.isEmpty()) {
-                voiceRuntime.speakNpc(npc, stripTags(msg), Collections.emptySet());
+                voiceRuntime.speakNpc(npc, TextNormalizer.stripTags(msg), Collections.emptySet());
             }
             // TODO: detect quest journal or book narration from appropriate events/widgets;
             // if detected and narrator enabled: voiceRuntime.speakNarrator(text)
         } catch (Exception ignored) {}
     }
 
-
-    private String stripTags(String in) {
-        return in == null ? "" : in.replaceAll("<[^>]*>", "");
-    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.example.osrstts.dialog;
+
+import com.example.osrstts.text.TextNormalizer;
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.NPC;
+import net.runelite.api.Player;
+import net.runelite.api.widgets.Widget;
+import net.runelite.api.widgets.WidgetID;
+import net.runelite.api.widgets.WidgetModelType;
+
+/**
+ * Resolves the NPC composition id behind a spoken line so voices can be keyed by id instead of name.
+ * Must be called on the client thread.
+ */
+public final class DialogNpcResolver {
+    private DialogNpcResolver() {}
+
+    /**
+     * @param speaker sanitized speaker name, used to sanity-check the interacting-NPC fallback (may be null)
+     * @return the composition id, or null when it cannot be determined
+     */
+    public static Integer resolveNpcId(Client client, String speaker) {
+        if (client == null) return null;
+        try {
+            // The NPC dialog chathead is rendered from the speaking NPC's composition id
+            Widget head = client.getWidget(WidgetID.DIALOG_NPC_GROUP_ID, WidgetID.DialogNPC.HEAD_MODEL);
+            if (head != null && !head.isHidden() && head.getModelType() == WidgetModelType.NPC_CHATHEAD && head.getModelId() > 0) {
+                return head.getModelId();
+            }
+        } catch (Throwable ignored) {}
+        try {
+            // Fallback: whoever the local player is interacting with, if the name agrees
+            Player local = client.getLocalPlayer();
+            Actor target = local != null ? local.getInteracting() : null;
+            if (target instanceof NPC) {
+                NPC npc = (NPC) target;
+                if (speaker == null || speaker.isBlank() || sameName(speaker, npc.getName())) {
+                    return npc.getId();
+                }
+            }
+        } catch (Throwable ignored) {}
+        return null;
+    }
+
+    // Compare on letters/digits only: chat names arrive tag-stripped and punctuation-sanitized
+    private static boolean sameName(String speaker, String npcName) {
+        if (npcName == null) return false;
+        return alnum(TextNormalizer.stripTags(npcName)).equals(alnum(speaker));
+    }
+
+    private static String alnum(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c)) sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+}
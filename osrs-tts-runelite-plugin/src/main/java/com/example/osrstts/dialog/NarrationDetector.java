@@ -1,6 +1,7 @@
 package com.example.osrstts.dialog;
 
 import com.example.osrstts.OsrsTtsConfig;
+import com.example.osrstts.text.TextNormalizer;
 import com.example.osrstts.voice.VoiceRuntime;
 import net.runelite.api.Client;
 import net.runelite.api.widgets.Widget;
@@ -8,23 +9,65 @@ import net.runelite.api.widgets.WidgetID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 
 public class NarrationDetector {
     private static final Logger log = LoggerFactory.getLogger(NarrationDetector.class);
     private static final boolean DEBUG = "true".equalsIgnoreCase(System.getProperty("osrs.tts.debug", "false"));
-    private String lastHash = null;
+    private volatile long lastHash = 0L; // FNV-1a fingerprint of the last spoken content (0 = none); dialogue scans and the analysis worker both set it
     private Integer lastLoadedGroupId = null;
     // Lightweight throttle (reintroduced) to prevent excessive log spam; adjustable via system property 'osrs.tts.narrationIntervalMs'
     private long lastScanAt = 0L;
     private static final long DEFAULT_INTERVAL = 350; // ms
     private String lastScannedContent = null;
-    // Incremental book/diary tracking
-    private String lastBookTitle = null;
-    private String lastBookBody = null; // full accumulated body already narrated
-    private long lastBookUpdateAt = 0L;
+    // Page-level book/diary tracking; flipping back or reopening replays page audio instead of re-synthesizing
+    private final BookPageIndex books = new BookPageIndex();
+    private static final boolean BOOK_PREFETCH = Boolean.parseBoolean(System.getProperty("osrs.tts.bookPrefetch", "true"));
+    private String openBookTitle = null; // book narrated most recently, null once other narration is spoken
+    // Per-widget cleaned-text cache shared by narration and dialogue scans
+    private final WidgetTextCache textCache = new WidgetTextCache();
+    private long lastAggregateFingerprint = 0L;
+    private long lastScannedHash = 0L;
+    // True when the last scan found nothing new and its content had already been spoken
+    private boolean settled = false;
+    // Client-thread budget per narration scan; an over-budget scan is abandoned and retried next tick with a warmer cache
+    private static final long SCAN_BUDGET_NANOS = Long.getLong("osrs.tts.scanBudgetUs", 2000L) * 1000L;
+    private static final int MAX_BUDGET_ABORTS = 2; // then finish the scan regardless so narration is never starved
+    private int consecutiveBudgetAborts = 0;
+    // Scan cost metrics (client thread only)
+    private long scanCount = 0L;
+    private long scanNanosTotal = 0L;
+    private long scanNanosMax = 0L;
+    private long budgetAborts = 0L;
+    // Text analysis runs on this executor when set; book state is then only touched there
+    private volatile java.util.concurrent.Executor analysisExecutor;
+    private long snapshotSeq = 0L;
+    private volatile long latestSnapshotSeq = 0L;
+    // Analysis metrics (single writer: the analysis worker)
+    private volatile long analysisCount = 0L;
+    private volatile long analysisNanosTotal = 0L;
+    private volatile long analysisNanosMax = 0L;
+    private volatile long supersededSnapshots = 0L;
+
+    /** Visible text and the client state analysis needs, copied on the client thread. */
+    private static final class Snapshot {
+        final long seq;
+        final String text;
+        final long hash;
+        final int groupId;
+        final String playerName;
+        final boolean diaryPreface;
+
+        Snapshot(long seq, String text, long hash, int groupId, String playerName, boolean diaryPreface) {
+            this.seq = seq;
+            this.text = text;
+            this.hash = hash;
+            this.groupId = groupId;
+            this.playerName = playerName;
+            this.diaryPreface = diaryPreface;
+        }
+    }
 
     // Add callback interface for dialog completion detection
     public interface DialogCompletionCallback {
@@ -58,6 +101,15 @@ public class NarrationDetector {
     };
     // cursor removed
 
+    /**
+     * Run narration analysis (list/noise/chat heuristics, page-number filtering, book tracking, speaking)
+     * on this executor instead of the calling client thread. Should be single-threaded so snapshots are
+     * analyzed in order; null analyzes inline.
+     */
+    public void setAnalysisExecutor(java.util.concurrent.Executor executor) {
+        this.analysisExecutor = executor;
+    }
+
     public void setLastLoadedGroupId(int groupId) {
         this.lastLoadedGroupId = groupId;
     }
@@ -81,6 +133,50 @@ public class NarrationDetector {
         lastScanAt = currentTime;
         if (DEBUG) log.info("TTS Narration scan start (interval={}ms)", minInterval);
 
+        long t0 = System.nanoTime();
+        settled = false;
+        try {
+            scanOpenText(client, cfg, runtime, t0);
+        } finally {
+            recordScan(System.nanoTime() - t0);
+        }
+    }
+
+    /** Whether the last scan saw unchanged text that was already spoken; further rescans are pointless. */
+    public boolean isSettled() {
+        return settled;
+    }
+
+    /** Per-scan client-thread cost (for comparing -Dosrs.tts.scanCache=true/false) and off-thread analysis cost. */
+    public String getScanStats() {
+        long avgUs = scanCount == 0 ? 0 : scanNanosTotal / scanCount / 1000;
+        long analyses = analysisCount;
+        long analysisAvgUs = analyses == 0 ? 0 : analysisNanosTotal / analyses / 1000;
+        return "scans=" + scanCount + " avgUs=" + avgUs + " maxUs=" + (scanNanosMax / 1000)
+                + " budgetAborts=" + budgetAborts + " widgetCacheHits=" + textCache.hits() + " misses=" + textCache.misses()
+                + " analyses=" + analyses + " analysisAvgUs=" + analysisAvgUs + " analysisMaxUs=" + (analysisNanosMax / 1000)
+                + " superseded=" + supersededSnapshots;
+    }
+
+    private void recordScan(long nanos) {
+        scanCount++;
+        scanNanosTotal += nanos;
+        if (nanos > scanNanosMax) scanNanosMax = nanos;
+        if (DEBUG && scanCount % 100 == 0) log.info("TTS NarrationDetector scan stats: {}", getScanStats());
+    }
+
+    private boolean overBudget(long t0) {
+        if (System.nanoTime() - t0 <= SCAN_BUDGET_NANOS) return false;
+        if (consecutiveBudgetAborts >= MAX_BUDGET_ABORTS) return false;
+        consecutiveBudgetAborts++;
+        budgetAborts++;
+        forceNextScan(); // resume on the next tick; cached widgets make the retry cheaper
+        if (DEBUG) log.info("TTS NarrationDetector: scan over budget, deferring ({} in a row)", consecutiveBudgetAborts);
+        return true;
+    }
+
+    private void scanOpenText(Client client, OsrsTtsConfig cfg, VoiceRuntime runtime, long t0) {
+
         // 1) Try NPC/Player dialogue widgets first (quest/dialogue boxes)
         if (maybeSpeakDialogue(client, runtime)) {
             return;
@@ -96,12 +192,13 @@ public class NarrationDetector {
         if (!cfg.isNarratorEnabled()) return;
         
         StringBuilder sb = new StringBuilder();
+        textCache.beginScan();
         int effectiveGroupUsed = -1;
         // Prefer the most recently loaded widget group only if it is a narrative group
         if (lastLoadedGroupId != null && isNarrativeGroup(lastLoadedGroupId)) {
             Widget last = client.getWidget(lastLoadedGroupId, 0);
             if (last != null) {
-                collectVisibleText(last, sb);
+                textCache.collectVisibleText(last, sb);
                 effectiveGroupUsed = lastLoadedGroupId;
             }
         }
@@ -113,21 +210,32 @@ public class NarrationDetector {
             if (groupId == 270) continue;
             Widget group = client.getWidget(groupId, 0);
             if (group == null) continue;
+            if (overBudget(t0)) return;
             int before = sb.length();
-            collectVisibleText(group, sb);
+            textCache.collectVisibleText(group, sb);
             // Fallback: if still nothing added for this group, brute-force a subset of component ids (early exit if we find something)
             if (sb.length() == before) {
                 for (int comp = 1; comp < 80; comp++) { // reasonable bound; books typically small component space
                     Widget w = client.getWidget(groupId, comp);
                     if (w == null) continue;
-                    collectVisibleText(w, sb);
+                    textCache.collectVisibleText(w, sb);
                     if (sb.length() > before + 2) break; // got some lines
                 }
             }
             if (sb.length() > before && effectiveGroupUsed == -1) effectiveGroupUsed = groupId;
             if (sb.length() > 10000) break; // increased to 10000 to handle very long books/scrolls
         }
-        
+        consecutiveBudgetAborts = 0;
+
+        // Every widget reused its cached lines in the same order: nothing changed since the last scan
+        long aggregate = textCache.fingerprint();
+        if (aggregate == lastAggregateFingerprint && lastScannedContent != null) {
+            settled = lastScannedHash == lastHash;
+            if (DEBUG && !lastScannedContent.isEmpty()) log.info("TTS NarrationDetector: unchanged widgets skipped ({} chars)", lastScannedContent.length());
+            return;
+        }
+        lastAggregateFingerprint = aggregate;
+
         String text = sb.toString().trim();
 
         if (DEBUG) {
@@ -136,22 +244,58 @@ public class NarrationDetector {
         
         // Duplicate suppression (allow very short new content within cooldown if changed)
     if (!text.isEmpty() && text.equals(lastScannedContent)) {
+            settled = lastScannedHash == lastHash;
             if (DEBUG && text.length() > 0) log.info("TTS NarrationDetector: identical content skipped ({} chars)", text.length());
             return;
         }
         lastScannedContent = text;
-        
+        lastScannedHash = WidgetTextCache.hash(text);
+
+        // The rest is pure text analysis: hand a snapshot to the worker so it stays off the client thread
+        Snapshot snap = new Snapshot(++snapshotSeq, text, lastScannedHash, effectiveGroupUsed, safePlayerName(client), cfg.isDiaryPrefaceEnabled());
+        latestSnapshotSeq = snap.seq;
+        java.util.concurrent.Executor ex = analysisExecutor;
+        if (ex != null) {
+            try {
+                ex.execute(() -> analyze(snap, runtime));
+                return;
+            } catch (java.util.concurrent.RejectedExecutionException ignored) {
+                // executor shut down; fall through and analyze inline
+            }
+        }
+        analyze(snap, runtime);
+    }
+
+    // Worker thread (or inline without an executor)
+    private void analyze(Snapshot snap, VoiceRuntime runtime) {
+        if (snap.seq != latestSnapshotSeq) {
+            supersededSnapshots++; // newer text was captured before this one was analyzed
+            return;
+        }
+        long t0 = System.nanoTime();
+        try {
+            analyzeText(snap, runtime);
+        } finally {
+            long nanos = System.nanoTime() - t0;
+            analysisCount++;
+            analysisNanosTotal += nanos;
+            if (nanos > analysisNanosMax) analysisNanosMax = nanos;
+        }
+    }
+
+    private void analyzeText(Snapshot snap, VoiceRuntime runtime) {
+        String text = snap.text;
         // Determine if this content belongs to a special quest group (allow shorter text)
         boolean isSpecialQuestGroup = false;
         for (int g : SPECIAL_QUEST_GROUPS) {
-            if (g == effectiveGroupUsed) { isSpecialQuestGroup = true; break; }
+            if (g == snap.groupId) { isSpecialQuestGroup = true; break; }
         }
 
     // Relax min length more: parchment / clue pages can be very short
     int minLength = isSpecialQuestGroup ? 6 : 18;
     if (text.length() < minLength) {
             if (DEBUG && text.length() > 0) {
-                log.info("TTS NarrationDetector: skipping short text ({} chars) group={} specialQuest={} content='{}'", text.length(), effectiveGroupUsed, isSpecialQuestGroup, text);
+                log.info("TTS NarrationDetector: skipping short text ({} chars) group={} specialQuest={} content='{}'", text.length(), snap.groupId, isSpecialQuestGroup, text);
             }
             return;
         }
@@ -159,7 +303,7 @@ public class NarrationDetector {
     boolean narrateAll = "true".equalsIgnoreCase(System.getProperty("osrs.tts.narrateAll", "false"));
         // Treat high-priority groups as narration automatically (even if heuristic fails)
         boolean forceByGroup = false;
-    if (!narrateAll && !isSpecialQuestGroup && effectiveGroupUsed != -1) {
+    if (!narrateAll && !isSpecialQuestGroup && snap.groupId != -1) {
         for (int gid : new int[]{
             WidgetID.GENERIC_SCROLL_GROUP_ID,
             WidgetID.DIARY_QUEST_GROUP_ID,
@@ -169,18 +313,18 @@ public class NarrationDetector {
             WidgetID.COLLECTION_LOG_ID,
             WidgetID.ADVENTURE_LOG_ID,
             WidgetID.KILL_LOGS_GROUP_ID
-        }) { if (gid == effectiveGroupUsed) { forceByGroup = true; break; } }
+        }) { if (gid == snap.groupId) { forceByGroup = true; break; } }
     }
         // Heuristic skip: detect list-like or obvious UI panels to avoid mass reading
-        if (!narrateAll && (isListLike(text) || isNoisePanel(text, effectiveGroupUsed) || isChatLike(text))) {
-            if (DEBUG) log.info("TTS NarrationDetector: noise/list/chat content suppressed (group={} chars={} lines={})", effectiveGroupUsed, text.length(), text.split("\\n").length);
+        if (!narrateAll && (isListLike(text) || isNoisePanel(text, snap.groupId) || isChatLike(text))) {
+            if (DEBUG) log.info("TTS NarrationDetector: noise/list/chat content suppressed (group={} chars={} lines={})", snap.groupId, text.length(), text.split("\\n").length);
             return;
         }
 
         // Enhanced filtering for narration content (or forced overrides / group forcing)
         if (narrateAll || forceByGroup || looksLikeNarrationContent(text) || isSpecialQuestGroup) {
-            String hash = sha1(text);
-            if (hash.equals(lastHash)) {
+            long hash = snap.hash;
+            if (hash == lastHash) {
                 if (DEBUG) log.info("TTS NarrationDetector: hash repeat suppressed");
                 return; // avoid repeats
             }
@@ -190,7 +334,7 @@ public class NarrationDetector {
                 String toSpeak = text.length() > 4000 ? text.substring(0, 4000) : text;
 
                 // Optional preface: "<Player> opens the <Title>. It reads: ..." for book / diary style content
-                if (cfg.isDiaryPrefaceEnabled()) {
+                if (snap.diaryPreface) {
                     try {
                         String[] lines = toSpeak.split("\n+");
                         if (lines.length > 1) {
@@ -206,38 +350,16 @@ public class NarrationDetector {
                                 if (Boolean.parseBoolean(System.getProperty("osrs.tts.filterPageNumbers", "true"))) {
                                     bodyLines = removePageNumberNoise(bodyLines);
                                 }
-                                String body = String.join("\n", bodyLines).trim();
-                                if (!body.isEmpty()) {
-                                    // Incremental logic: if same title and body extends last body, only speak delta
-                                    boolean sameTitle = title.equalsIgnoreCase(lastBookTitle != null ? lastBookTitle : "");
-                                    boolean extended = false;
-                                    String delta = null;
-                                    if (sameTitle && lastBookBody != null && body.length() > lastBookBody.length() && body.startsWith(lastBookBody)) {
-                                        delta = body.substring(lastBookBody.length()).trim();
-                                        // Avoid trivial delta (e.g., leftover newline)
-                                        if (delta.length() < 4) delta = null; else extended = true;
-                                    }
-                                    if (extended && delta != null) {
-                                        // Speak only the newly revealed page content (no preface repetition)
-                                        toSpeak = delta;
-                                        lastBookBody = body; // update accumulated body
-                                        lastBookUpdateAt = System.currentTimeMillis();
-                                    } else {
-                                        // New book or non-extension content
-                                        String playerName = safePlayerName(client);
-                                        String article = title.toLowerCase().matches("^(a |an |the ).*") ? "" : (needsAn(title) ? "an " : "the ");
-                                        String prefix = playerName + " opens " + article + title + ". It reads: ";
-                                        toSpeak = prefix + body;
-                                        lastBookTitle = title;
-                                        lastBookBody = body;
-                                        lastBookUpdateAt = System.currentTimeMillis();
-                                    }
+                                if (!bodyLines.isEmpty()) {
+                                    narrateBookView(snap.playerName, runtime, title, bodyLines);
+                                    return;
                                 }
                             }
                         }
                     } catch (Exception ignored) {}
                 }
 
+                openBookTitle = null;
                 if (DEBUG) log.info("TTS NarrationDetector: speaking {} chars", toSpeak.length());
                 runtime.speakNarrator(toSpeak);
             } catch (Exception e) {
@@ -246,6 +368,32 @@ public class NarrationDetector {
         }
     }
 
+    /**
+     * Narrate only the pages of this view that follow the page already read. Opening a book keeps the
+     * "X opens the Y. It reads:" preface; page flips play the page's own audio, which is retained per page
+     * (and on disk) so flipping back is instant, and the next page in the direction of travel is prefetched.
+     */
+    private void narrateBookView(String playerName, VoiceRuntime runtime, String title, List<String> bodyLines) throws Exception {
+        boolean opening = !title.equalsIgnoreCase(openBookTitle);
+        openBookTitle = title;
+        BookPageIndex.View view = books.view(title, bodyLines, opening);
+        if (view == null) {
+            if (DEBUG) log.info("TTS NarrationDetector: book '{}' has nothing past the current page", title);
+            return;
+        }
+        String text = view.text();
+        if (opening) {
+            String article = title.toLowerCase().matches("^(a |an |the ).*") ? "" : (needsAn(title) ? "an " : "the ");
+            runtime.speakNarrator(playerName + " opens " + article + title + ". It reads: " + text);
+        } else if (view.pages.size() == 1) {
+            runtime.playNarrator(text, books.audioFor(view.pages.get(0), runtime::narratorAudio));
+        } else {
+            runtime.speakNarrator(text);
+        }
+        if (BOOK_PREFETCH) books.prefetchAhead(view, runtime::narratorAudio);
+        if (DEBUG) log.info("TTS NarrationDetector: book '{}' pages={} known={} opening={} ({})", title, view.pages.size(), view.known, opening, books.getStats());
+    }
+
     private static boolean isNarrativeGroup(int groupId) {
         for (int g : SCAN_GROUPS) if (g == groupId) return true;
         return false;
@@ -276,7 +424,7 @@ public class NarrationDetector {
             String l = line.trim();
             if (l.isEmpty()) continue;
             if (l.length() < 15) shortLines++;
-            if (l.matches(".*[.!?]\\s*$")) sentences++;
+            if (TextNormalizer.endsSentence(l)) sentences++;
         }
         double sentenceRatio = sentences / (double) lines.length;
         double shortRatio = shortLines / (double) lines.length;
@@ -295,7 +443,7 @@ public class NarrationDetector {
             if (l.isEmpty()) continue;
             if (l.length() < 20) shortLines++;
             if (l.split("\\s+").length == 1) singleWord++;
-            if (l.matches(".*[.!?]\\s*$")) punct++;
+            if (TextNormalizer.endsSentence(l)) punct++;
         }
         int effective = 0; for (String l : lines) if (!l.trim().isEmpty()) effective++;
         if (effective == 0) return false;
@@ -408,7 +556,7 @@ public class NarrationDetector {
             if (client == null || client.getLocalPlayer() == null) return "The player";
             String n = client.getLocalPlayer().getName();
             if (n == null || n.isBlank()) return "The player";
-            return n.replaceAll("<[^>]*>", "");
+            return TextNormalizer.stripTags(n);
         } catch (Exception e) {
             return "The player";
         }
@@ -442,13 +590,16 @@ public class NarrationDetector {
             net.runelite.api.widgets.Widget root = client.getWidget(groupId, 0);
             if (root == null || root.isHidden()) continue;
             List<String> lines = new ArrayList<>();
-            collectVisibleLines(root, lines);
+            textCache.collectVisibleLines(root, lines);
             if (lines.isEmpty()) continue;
             String joined = String.join("\n", lines).trim();
             if (joined.isEmpty()) continue;
 
-            String hash = sha1(groupId + "|" + joined);
-            if (hash.equals(lastHash)) return true;
+            long hash = WidgetTextCache.hash(groupId + "|" + joined);
+            if (hash == lastHash) {
+                settled = true; // same dialogue already handled
+                return true;
+            }
 
             try {
                 if (groupId == safeDialogPlayerGroup()) {
@@ -482,7 +633,7 @@ public class NarrationDetector {
                         } catch (Exception ignored) {}
                     }
                     java.util.Set<String> tags = runtime.inferTags(speaker);
-                    runtime.speakNpc(speaker, body, tags);
+                    runtime.speakNpc(DialogNpcResolver.resolveNpcId(client, speaker), speaker, body, tags);
                 } else if (groupId == safeDialogOptionGroup()) {
                     String prompt = extractPrompt(lines);
                     if (prompt != null && !prompt.isEmpty()) {
@@ -511,100 +662,6 @@ public class NarrationDetector {
         try { return net.runelite.api.widgets.WidgetID.DIALOG_OPTION_GROUP_ID; } catch (Throwable t) { return 219; }
     }
 
-    private static String stripTags(String in) {
-        if (in == null) return "";
-        String s = in;
-        try {
-            s = s.replace('\u00A0', ' '); // nbsp to space
-            s = s.replaceAll("(?i)<br\\s*/?>", "\n"); // preserve visual line breaks
-            s = s.replaceAll("<[^>]*>", ""); // remove remaining tags
-            // Normalize whitespace but keep newlines for structure
-            s = s.replaceAll("[\\t\\x0B\\f\\r]", " ");
-            // Collapse multiple spaces
-            s = s.replaceAll(" {2,}", " ");
-            // Trim each line but keep line boundaries
-            String[] lines = s.split("\n");
-            StringBuilder out = new StringBuilder();
-            for (int i = 0; i < lines.length; i++) {
-                String ln = lines[i].trim();
-                if (!ln.isEmpty()) {
-                    out.append(ln);
-                    if (i < lines.length - 1) out.append('\n');
-                }
-            }
-            s = out.toString();
-        } catch (Exception ignored) {}
-        return s;
-    }
-
-    private static String sha1(String s) {
-        try {
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-1");
-            byte[] dig = md.digest(s.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-            StringBuilder hex = new StringBuilder(dig.length * 2);
-            for (byte b : dig) hex.append(String.format("%02x", b));
-            return hex.toString();
-        } catch (Exception e) {
-            return Integer.toHexString(s.hashCode());
-        }
-    }
-
-    private static void collectVisibleText(net.runelite.api.widgets.Widget w, StringBuilder sb) {
-        if (w == null || w.isHidden()) return;
-        String t = w.getText();
-        if (t != null && !t.isEmpty()) {
-            String s = stripTags(t).trim();
-            if (!s.isEmpty()) {
-                // Split multi-line into separate lines to preserve spacing when joined later
-                String[] parts = s.split("\n+");
-                for (String p : parts) {
-                    String pp = p.trim();
-                    if (!pp.isEmpty()) sb.append(pp).append('\n');
-                }
-            }
-        }
-        // Traverse all child arrays: standard, static, dynamic.
-        net.runelite.api.widgets.Widget[] children = w.getChildren();
-        if (children != null) {
-            for (net.runelite.api.widgets.Widget c : children) collectVisibleText(c, sb);
-        }
-        net.runelite.api.widgets.Widget[] staticChildren = w.getStaticChildren();
-        if (staticChildren != null) {
-            for (net.runelite.api.widgets.Widget c : staticChildren) collectVisibleText(c, sb);
-        }
-        net.runelite.api.widgets.Widget[] dynamicChildren = w.getDynamicChildren();
-        if (dynamicChildren != null) {
-            for (net.runelite.api.widgets.Widget c : dynamicChildren) collectVisibleText(c, sb);
-        }
-    }
-
-    private static void collectVisibleLines(net.runelite.api.widgets.Widget w, List<String> lines) {
-        if (w == null || w.isHidden()) return;
-        String t = w.getText();
-        if (t != null && !t.isEmpty()) {
-            String s = stripTags(t).trim();
-            if (!s.isEmpty()) {
-                String[] parts = s.split("\n+");
-                for (String p : parts) {
-                    String pp = p.trim();
-                    if (!pp.isEmpty()) lines.add(pp);
-                }
-            }
-        }
-        net.runelite.api.widgets.Widget[] children = w.getChildren();
-        if (children != null) {
-            for (net.runelite.api.widgets.Widget c : children) collectVisibleLines(c, lines);
-        }
-        net.runelite.api.widgets.Widget[] staticChildren = w.getStaticChildren();
-        if (staticChildren != null) {
-            for (net.runelite.api.widgets.Widget c : staticChildren) collectVisibleLines(c, lines);
-        }
-        net.runelite.api.widgets.Widget[] dynamicChildren = w.getDynamicChildren();
-        if (dynamicChildren != null) {
-            for (net.runelite.api.widgets.Widget c : dynamicChildren) collectVisibleLines(c, lines);
-        }
-    }
-
     private static String extractSpeaker(List<String> lines) {
         if (lines == null || lines.isEmpty()) return null;
         String first = lines.get(0).trim();
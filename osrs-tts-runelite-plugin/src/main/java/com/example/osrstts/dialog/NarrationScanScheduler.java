@@ -0,0 +1,153 @@
+package com.example.osrstts.dialog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Debounced follow-up scans after a widget group loads. Each group gets one burst of rescans on a fixed
+ * ladder (text often populates a few frames after the load); reloading the group restarts its burst instead
+ * of stacking another, due scans of several groups run as one, and a burst ends as soon as the scanner
+ * reports that stable text has been spoken. A single timer wakes the client thread only when a scan is due.
+ */
+public final class NarrationScanScheduler {
+    private static final Logger log = LoggerFactory.getLogger(NarrationScanScheduler.class);
+    private static final int[] LADDER_MS = {100, 250, 500, 800, 1200};
+
+    public interface Scanner {
+        /** Run one scan for the group on the client thread. @return true once stable text has been spoken */
+        boolean scan(int groupId);
+    }
+
+    private static final class Burst {
+        final int groupId;
+        final long startedAt;
+        final int[] ladder;
+        int next; // index of the next ladder step
+
+        Burst(int groupId, long startedAt, int[] ladder) {
+            this.groupId = groupId;
+            this.startedAt = startedAt;
+            this.ladder = ladder;
+        }
+
+        long dueAt() { return startedAt + ladder[next]; }
+        int remaining() { return ladder.length - next; }
+    }
+
+    private final ScheduledExecutorService timer;
+    private final Consumer<Runnable> clientThread;
+    private final Scanner scanner;
+    private final boolean debug;
+
+    private final Map<Integer, Burst> bursts = new HashMap<>();
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt;
+    private boolean closed;
+
+    // Stats: scans the old fixed fan-out would have run vs what actually ran
+    private long requested;
+    private long executed;
+    private long avoided;
+
+    public NarrationScanScheduler(ScheduledExecutorService timer, Consumer<Runnable> clientThread, Scanner scanner, boolean debug) {
+        this.timer = timer;
+        this.clientThread = clientThread;
+        this.scanner = scanner;
+        this.debug = debug;
+    }
+
+    /**
+     * Start (or restart) the rescan burst for a group.
+     * @param firstDelayMs optional earlier first step (e.g. 50ms while dialogue completion is pending), 0 for none
+     */
+    public synchronized void request(int groupId, int firstDelayMs) {
+        if (closed) return;
+        int[] ladder = LADDER_MS;
+        if (firstDelayMs > 0 && firstDelayMs < LADDER_MS[0]) {
+            ladder = new int[LADDER_MS.length + 1];
+            ladder[0] = firstDelayMs;
+            System.arraycopy(LADDER_MS, 0, ladder, 1, LADDER_MS.length);
+        }
+        requested += ladder.length;
+        Burst previous = bursts.put(groupId, new Burst(groupId, System.currentTimeMillis(), ladder));
+        if (previous != null) avoided += previous.remaining(); // coalesced into the new burst
+        arm();
+    }
+
+    public synchronized String getStats() {
+        return "requested=" + requested + " executed=" + executed + " avoided=" + avoided + " activeBursts=" + bursts.size();
+    }
+
+    public synchronized void shutdown() {
+        closed = true;
+        bursts.clear();
+        if (wakeup != null) wakeup.cancel(false);
+        wakeup = null;
+    }
+
+    // Keep exactly one timer pending, for the earliest due step
+    private void arm() {
+        if (closed || bursts.isEmpty()) return;
+        long due = Long.MAX_VALUE;
+        for (Burst b : bursts.values()) due = Math.min(due, b.dueAt());
+        if (wakeup != null && !wakeup.isDone() && wakeupAt <= due) return;
+        if (wakeup != null) wakeup.cancel(false);
+        wakeupAt = due;
+        long delay = Math.max(0L, due - System.currentTimeMillis());
+        try {
+            wakeup = timer.schedule(() -> clientThread.accept(this::runDue), delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            wakeup = null; // scheduler shut down
+        }
+    }
+
+    private void runDue() {
+        List<Burst> due = new ArrayList<>();
+        Burst primary = null;
+        synchronized (this) {
+            wakeup = null;
+            if (closed) return;
+            long now = System.currentTimeMillis();
+            for (Burst b : bursts.values()) {
+                if (b.dueAt() > now) continue;
+                due.add(b);
+                if (primary == null || b.startedAt > primary.startedAt) primary = b; // prefer the latest load
+            }
+            if (primary == null) { arm(); return; }
+            // One scan covers every narrative group, so simultaneous steps collapse into it
+            avoided += due.size() - 1;
+            executed++;
+        }
+        boolean settled = false;
+        try {
+            settled = scanner.scan(primary.groupId);
+        } catch (Exception e) {
+            if (debug) log.debug("Scheduled narration scan failed: {}", e.getMessage());
+        }
+        synchronized (this) {
+            for (Burst b : due) {
+                if (bursts.get(b.groupId) != b) continue; // restarted while scanning
+                b.next++;
+                if (settled) {
+                    avoided += b.remaining();
+                    bursts.remove(b.groupId);
+                    if (debug) log.info("Narration scan burst group={} settled after {} scans ({})", b.groupId, b.next, getStats());
+                }
+            }
+            for (Iterator<Burst> it = bursts.values().iterator(); it.hasNext(); ) {
+                if (it.next().remaining() <= 0) it.remove();
+            }
+            arm();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.osrstts.dialog;
+
+import com.example.osrstts.text.TextNormalizer;
+import net.runelite.api.widgets.Widget;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the cleaned lines of every widget text seen during scans, keyed by widget id/index.
+ * A widget whose raw text is unchanged since the last scan reuses its cached lines, so tag stripping
+ * and line splitting only run for widgets that actually changed. Client thread only.
+ */
+final class WidgetTextCache {
+    private static final int MAX_ENTRIES = 8192;
+    private static final String[] NO_LINES = new String[0];
+
+    private static final class Entry {
+        final String raw;     // exact text the lines were derived from
+        final String[] lines; // cleaned, non-empty lines
+        final long hash;      // fingerprint of lines
+
+        Entry(String raw, String[] lines, long hash) {
+            this.raw = raw;
+            this.lines = lines;
+            this.hash = hash;
+        }
+    }
+
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty("osrs.tts.scanCache", "true"));
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long fingerprint; // rolling fingerprint of everything collected since beginScan()
+
+    /** Reset the rolling fingerprint for a new aggregate. */
+    void beginScan() { fingerprint = FNV_OFFSET; }
+
+    /** Fingerprint of the text collected since {@link #beginScan()}; equal fingerprints mean equal text. */
+    long fingerprint() { return fingerprint; }
+
+    long hits() { return hits; }
+    long misses() { return misses; }
+
+    void collectVisibleText(Widget w, StringBuilder sb) {
+        if (w == null || w.isHidden()) return;
+        for (String line : linesOf(w)) sb.append(line).append('\n');
+        // Traverse all child arrays: standard, static, dynamic.
+        Widget[] children = w.getChildren();
+        if (children != null) {
+            for (Widget c : children) collectVisibleText(c, sb);
+        }
+        Widget[] staticChildren = w.getStaticChildren();
+        if (staticChildren != null) {
+            for (Widget c : staticChildren) collectVisibleText(c, sb);
+        }
+        Widget[] dynamicChildren = w.getDynamicChildren();
+        if (dynamicChildren != null) {
+            for (Widget c : dynamicChildren) collectVisibleText(c, sb);
+        }
+    }
+
+    void collectVisibleLines(Widget w, List<String> lines) {
+        if (w == null || w.isHidden()) return;
+        for (String line : linesOf(w)) lines.add(line);
+        Widget[] children = w.getChildren();
+        if (children != null) {
+            for (Widget c : children) collectVisibleLines(c, lines);
+        }
+        Widget[] staticChildren = w.getStaticChildren();
+        if (staticChildren != null) {
+            for (Widget c : staticChildren) collectVisibleLines(c, lines);
+        }
+        Widget[] dynamicChildren = w.getDynamicChildren();
+        if (dynamicChildren != null) {
+            for (Widget c : dynamicChildren) collectVisibleLines(c, lines);
+        }
+    }
+
+    private String[] linesOf(Widget w) {
+        String t = w.getText();
+        if (t == null || t.isEmpty()) return NO_LINES;
+        long key = ((long) w.getId() << 32) | (w.getIndex() & 0xFFFFFFFFL);
+        Entry e = enabled ? entries.get(key) : null;
+        // Same instance is the common case for an untouched widget; equals() covers re-set identical text
+        if (e != null && (e.raw == t || e.raw.equals(t))) {
+            hits++;
+        } else {
+            misses++;
+            String[] lines = TextNormalizer.visibleLines(t).toArray(NO_LINES);
+            e = new Entry(t, lines, hashLines(lines));
+            if (enabled) {
+                if (entries.size() >= MAX_ENTRIES) entries.clear();
+                entries.put(key, e);
+            }
+        }
+        fingerprint = (fingerprint ^ e.hash) * FNV_PRIME;
+        return e.lines;
+    }
+
+    // 64-bit FNV-1a; cheap enough to run over every scan without the SHA-1 hex round trip
+    static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    static final long FNV_PRIME = 0x100000001b3L;
+
+    static long hash(CharSequence s) {
+        long h = FNV_OFFSET;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            h ^= s.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long hashLines(String[] lines) {
+        long h = FNV_OFFSET;
+        for (String l : lines) {
+            for (int i = 0, n = l.length(); i < n; i++) {
+                h ^= l.charAt(i);
+                h *= FNV_PRIME;
+            }
+            h ^= '\n';
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+}
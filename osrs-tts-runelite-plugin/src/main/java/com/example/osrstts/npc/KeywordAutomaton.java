@@ -0,0 +1,124 @@
+package com.example.osrstts.npc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick matcher over lower-case a-z keywords.
+ * Each keyword carries a priority (lower wins) and a flag mask; a single pass over the
+ * input reports the best priority seen and the OR of all flags, without allocating.
+ */
+final class KeywordAutomaton {
+    static final int NO_PRIORITY = Integer.MAX_VALUE;
+    private static final int ALPHABET = 26;
+
+    private final int[][] delta;      // full DFA transitions (node x letter)
+    private final int[] nodePriority; // min priority of every keyword ending at/through node
+    private final int[] nodeFlags;    // OR of flags of every keyword ending at/through node
+
+    private KeywordAutomaton(int[][] delta, int[] nodePriority, int[] nodeFlags) {
+        this.delta = delta;
+        this.nodePriority = nodePriority;
+        this.nodeFlags = nodeFlags;
+    }
+
+    /**
+     * Scan text (expected lower-case) once. Returns priority in the high 32 bits and flags in the low 32 bits;
+     * use {@link #priority(long)} and {@link #flags(long)} to unpack.
+     */
+    long scan(CharSequence text) {
+        int best = NO_PRIORITY;
+        int flags = 0;
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            int c = text.charAt(i) - 'a';
+            // Keywords are a-z only, so any other char can never be part of a match
+            state = (c >= 0 && c < ALPHABET) ? delta[state][c] : 0;
+            if (nodePriority[state] < best) best = nodePriority[state];
+            flags |= nodeFlags[state];
+        }
+        return ((long) best << 32) | (flags & 0xFFFFFFFFL);
+    }
+
+    static int priority(long packed) { return (int) (packed >>> 32); }
+    static int flags(long packed) { return (int) packed; }
+
+    static final class Builder {
+        private final List<int[]> children = new ArrayList<>();
+        private final List<int[]> terminal = new ArrayList<>(); // {priority, flags}
+
+        Builder() { newNode(); }
+
+        private int newNode() {
+            int[] next = new int[ALPHABET];
+            Arrays.fill(next, -1);
+            children.add(next);
+            terminal.add(new int[] {NO_PRIORITY, 0});
+            return children.size() - 1;
+        }
+
+        /** Adding the same keyword twice keeps the lower priority and merges flags. */
+        Builder add(String keyword, int priority, int flags) {
+            if (keyword == null || keyword.isEmpty()) return this;
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int c = keyword.charAt(i) - 'a';
+                if (c < 0 || c >= ALPHABET) {
+                    throw new IllegalArgumentException("Keyword must be lower-case a-z: " + keyword);
+                }
+                int next = children.get(node)[c];
+                if (next < 0) {
+                    next = newNode();
+                    children.get(node)[c] = next;
+                }
+                node = next;
+            }
+            int[] t = terminal.get(node);
+            t[0] = Math.min(t[0], priority);
+            t[1] |= flags;
+            return this;
+        }
+
+        KeywordAutomaton build() {
+            int size = children.size();
+            int[][] delta = new int[size][];
+            int[] fail = new int[size];
+            int[] prio = new int[size];
+            int[] flags = new int[size];
+            for (int i = 0; i < size; i++) {
+                delta[i] = children.get(i).clone();
+                prio[i] = terminal.get(i)[0];
+                flags[i] = terminal.get(i)[1];
+            }
+            // BFS: resolve fail links, complete the DFA and fold suffix outputs into each node
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = delta[0][c];
+                if (child < 0) {
+                    delta[0][c] = 0;
+                } else {
+                    fail[child] = 0;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                int f = fail[node];
+                prio[node] = Math.min(prio[node], prio[f]);
+                flags[node] |= flags[f];
+                for (int c = 0; c < ALPHABET; c++) {
+                    int child = delta[node][c];
+                    if (child < 0) {
+                        delta[node][c] = delta[f][c];
+                    } else {
+                        fail[child] = delta[f][c];
+                        queue.add(child);
+                    }
+                }
+            }
+            return new KeywordAutomaton(delta, prio, flags);
+        }
+    }
+}
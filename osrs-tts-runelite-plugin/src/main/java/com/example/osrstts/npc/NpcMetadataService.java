@@ -7,6 +7,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NpcMetadataService {
     private static final ObjectMapper M = new ObjectMapper();
@@ -27,6 +28,58 @@ public class NpcMetadataService {
             "rachel","bella","elli","dorothy","natasha","serena","glinda","freya","mimi","nova"
     ));
 
+    // Primary tag rules in priority order: {tag, keyword...}; the first rule with any contained keyword wins
+    private static final String[][] TAG_RULES = {
+            // Region/location patterns
+            {"fremennik", "fremennik"},
+            {"tzhaar", "tzhaar"},
+            {"barbarian", "barbarian"},
+            {"dwarf", "dwarf", "dwarv"},
+            {"elf", "elf", "elv"},
+            {"gnome", "gnome"},
+            {"goblin", "goblin"},
+            {"troll", "troll"},
+            {"ogre", "ogre"},
+            {"giant", "giant"},
+            // Profession patterns
+            {"guard", "guard"},
+            {"knight", "knight"},
+            {"wizard", "wizard"},
+            {"monk", "monk"},
+            {"priest", "priest"},
+            {"nun", "nun"},
+            {"smith", "smith"},
+            {"miner", "miner"},
+            {"farmer", "farmer"},
+            {"fisherman", "fisher"},
+            {"sailor", "sailor"},
+            {"pirate", "pirate"},
+            {"bandit", "bandit"},
+            {"merchant", "merchant"},
+            {"shopkeeper", "shopkeeper"},
+            {"banker", "banker"},
+            // Title patterns
+            {"royalty", "king", "queen", "prince", "princess"},
+            {"nobility", "duke", "duchess", "lord", "lady", "sir"},
+            // Creature types
+            {"vampire", "vampire"},
+            {"werewolf", "werewolf"},
+            {"ghost", "ghost"},
+            {"skeleton", "skeleton"},
+            {"zombie", "zombie"},
+            {"demon", "demon"},
+            {"dragon", "dragon"},
+            // Age/social patterns
+            {"kid", "child", "kid", "boy", "girl"},
+            {"elder", "elder", "wise", "old"}
+    };
+    private static final int FLAG_MALE = 1;
+    private static final int FLAG_FEMALE = 2;
+    private static final int MAX_CACHED_NAMES = 8192;
+
+    private final KeywordAutomaton automaton;
+    private final Map<String, NpcMetadata> metadataCache = new ConcurrentHashMap<>();
+
     public static class NpcMetadata {
         public final String primaryTag;
         public final String gender;
@@ -42,6 +95,7 @@ public class NpcMetadataService {
     public NpcMetadataService() {
         loadGenderOverrides();
         initializeTagGenderMappings();
+        this.automaton = buildAutomaton();
         
         // Add some critical hardcoded overrides as fallback
         if (!genderOverrides.containsKey("dr fenkenstrain")) {
@@ -116,14 +170,27 @@ public class NpcMetadataService {
 
     public NpcMetadata analyzeNpc(String npcName) {
         String cleanName = npcName.toLowerCase().trim();
-        String primaryTag = inferPrimaryTag(cleanName);
-        String gender = inferGender(cleanName, primaryTag);
-        List<String> allTags = inferAllTags(cleanName);
+        NpcMetadata cached = metadataCache.get(cleanName);
+        if (cached != null) return cached;
+
+        // One automaton pass yields the primary tag rule and any gendered words in the name
+        long match = automaton.scan(cleanName);
+        String primaryTag = primaryTagFor(match);
+        String gender = inferGender(cleanName, primaryTag, match);
+        List<String> allTags = new ArrayList<>(2);
+        allTags.add(primaryTag);
+        if (!gender.equals("neutral")) {
+            allTags.add(gender);
+        }
 
-        return new NpcMetadata(primaryTag, gender, allTags);
+        NpcMetadata meta = new NpcMetadata(primaryTag, gender, Collections.unmodifiableList(allTags));
+        // Names are a bounded set in practice; reset rather than track LRU if something floods us
+        if (metadataCache.size() >= MAX_CACHED_NAMES) metadataCache.clear();
+        metadataCache.put(cleanName, meta);
+        return meta;
     }
 
-    private String inferGender(String cleanName, String primaryTag) {
+    private String inferGender(String cleanName, String primaryTag, long match) {
         // Priority 1: Check override file first
         if (genderOverrides.containsKey(cleanName)) {
             return genderOverrides.get(cleanName);
@@ -138,13 +205,10 @@ public class NpcMetadataService {
             return tagGender.get(primaryTag);
         }
 
-        // Priority 4: Check for gendered words in the name
-        for (String male : knownMale) {
-            if (cleanName.contains(male)) return "male";
-        }
-        for (String female : knownFemale) {
-            if (cleanName.contains(female)) return "female";
-        }
+        // Priority 4: Check for gendered words in the name (any male word wins over female words)
+        int flags = KeywordAutomaton.flags(match);
+        if ((flags & FLAG_MALE) != 0) return "male";
+        if ((flags & FLAG_FEMALE) != 0) return "female";
 
         // Priority 5: Check common name endings
         if (cleanName.endsWith("a") || cleanName.endsWith("ia") || cleanName.endsWith("ella")) {
@@ -155,78 +219,20 @@ public class NpcMetadataService {
         return "neutral";
     }
 
-    private String inferPrimaryTag(String cleanName) {
-        // Region/location patterns
-        if (cleanName.contains("fremennik")) return "fremennik";
-        if (cleanName.contains("tzhaar")) return "tzhaar";
-        if (cleanName.contains("barbarian")) return "barbarian";
-        if (cleanName.contains("dwarf") || cleanName.contains("dwarv")) return "dwarf";
-        if (cleanName.contains("elf") || cleanName.contains("elv")) return "elf";
-        if (cleanName.contains("gnome")) return "gnome";
-        if (cleanName.contains("goblin")) return "goblin";
-        if (cleanName.contains("troll")) return "troll";
-        if (cleanName.contains("ogre")) return "ogre";
-        if (cleanName.contains("giant")) return "giant";
-
-        // Profession patterns
-        if (cleanName.contains("guard")) return "guard";
-        if (cleanName.contains("knight")) return "knight";
-        if (cleanName.contains("wizard")) return "wizard";
-        if (cleanName.contains("monk")) return "monk";
-        if (cleanName.contains("priest")) return "priest";
-        if (cleanName.contains("nun")) return "nun";
-        if (cleanName.contains("smith")) return "smith";
-        if (cleanName.contains("miner")) return "miner";
-        if (cleanName.contains("farmer")) return "farmer";
-        if (cleanName.contains("fisher")) return "fisherman";
-        if (cleanName.contains("sailor")) return "sailor";
-        if (cleanName.contains("pirate")) return "pirate";
-        if (cleanName.contains("bandit")) return "bandit";
-        if (cleanName.contains("merchant")) return "merchant";
-        if (cleanName.contains("shopkeeper")) return "shopkeeper";
-        if (cleanName.contains("banker")) return "banker";
-
-        // Title patterns
-        if (cleanName.contains("king")) return "royalty";
-        if (cleanName.contains("queen")) return "royalty";
-        if (cleanName.contains("prince")) return "royalty";
-        if (cleanName.contains("princess")) return "royalty";
-        if (cleanName.contains("duke")) return "nobility";
-        if (cleanName.contains("duchess")) return "nobility";
-        if (cleanName.contains("lord")) return "nobility";
-        if (cleanName.contains("lady")) return "nobility";
-        if (cleanName.contains("sir")) return "nobility";
-
-        // Creature types
-        if (cleanName.contains("vampire")) return "vampire";
-        if (cleanName.contains("werewolf")) return "werewolf";
-        if (cleanName.contains("ghost")) return "ghost";
-        if (cleanName.contains("skeleton")) return "skeleton";
-        if (cleanName.contains("zombie")) return "zombie";
-        if (cleanName.contains("demon")) return "demon";
-        if (cleanName.contains("dragon")) return "dragon";
-
-        // Age/social patterns
-        if (cleanName.contains("child") || cleanName.contains("kid") || cleanName.contains("boy") || cleanName.contains("girl")) {
-            return "kid";
-        }
-        if (cleanName.contains("elder") || cleanName.contains("wise") || cleanName.contains("old")) {
-            return "elder";
-        }
-
+    private static String primaryTagFor(long match) {
+        int rule = KeywordAutomaton.priority(match);
         // Default to citizen for unidentified NPCs
-        return "citizen";
+        return rule == KeywordAutomaton.NO_PRIORITY ? "citizen" : TAG_RULES[rule][0];
     }
 
-    private List<String> inferAllTags(String cleanName) {
-        List<String> tags = new ArrayList<>();
-        tags.add(inferPrimaryTag(cleanName));
-
-        String gender = inferGender(cleanName, tags.get(0));
-        if (!gender.equals("neutral")) {
-            tags.add(gender);
+    private KeywordAutomaton buildAutomaton() {
+        KeywordAutomaton.Builder b = new KeywordAutomaton.Builder();
+        // Rule index doubles as priority, so the first matching rule wins exactly like the old if-chain
+        for (int i = 0; i < TAG_RULES.length; i++) {
+            for (int k = 1; k < TAG_RULES[i].length; k++) b.add(TAG_RULES[i][k], i, 0);
         }
-
-        return tags;
+        for (String male : knownMale) b.add(male, KeywordAutomaton.NO_PRIORITY, FLAG_MALE);
+        for (String female : knownFemale) b.add(female, KeywordAutomaton.NO_PRIORITY, FLAG_FEMALE);
+        return b.build();
     }
 }
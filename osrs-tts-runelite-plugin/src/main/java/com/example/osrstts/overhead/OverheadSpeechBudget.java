@@ -0,0 +1,168 @@
+package com.example.osrstts.overhead;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Decides which NPC overhead lines get spoken. New lines are offered as candidates each tick; on
+ * {@link #drain(long)} they are ranked by distance to the local player, on-screen visibility and age,
+ * and only the best few that fit a per-second character budget (a token bucket) are returned. Everything
+ * else expires or is pushed out of a small pending set before it ever reaches synthesis, so crowded
+ * areas cannot build a backlog or run through provider quotas. Client thread only.
+ */
+public final class OverheadSpeechBudget {
+    private static final int MAX_PENDING = 16;
+
+    public static final class Candidate {
+        public final int actorIndex;
+        public final Integer npcId; // composition id, keys the same voice profile as dialogue
+        public final String speaker;
+        public final String text;
+        final int distance;
+        final boolean onScreen;
+        final long offeredAtMs;
+
+        Candidate(int actorIndex, Integer npcId, String speaker, String text, int distance, boolean onScreen, long offeredAtMs) {
+            this.actorIndex = actorIndex;
+            this.npcId = npcId;
+            this.speaker = speaker;
+            this.text = text;
+            this.distance = distance;
+            this.onScreen = onScreen;
+            this.offeredAtMs = offeredAtMs;
+        }
+
+        // Lower is better: a tile of distance, ~250ms of age and being off screen (10 tiles) trade off
+        double score(long nowMs) {
+            return distance + (onScreen ? 0 : 10) + (nowMs - offeredAtMs) / 250.0;
+        }
+    }
+
+    private final int maxPerDrain;
+    private final int maxDistance;
+    private final long ttlMs;
+    private final double charsPerSecond;
+    private final double burstChars;
+
+    private final List<Candidate> pending = new ArrayList<>();
+    private double tokens;
+    private long refilledAtMs;
+
+    private long offered;
+    private long spoken;
+    private long droppedFar;
+    private long droppedExpired;
+    private long droppedOverflow;
+    private long droppedRepeat;
+    private long replaced;
+
+    public OverheadSpeechBudget(int maxPerDrain, int charsPerSecond, int burstChars, int maxDistance, long ttlMs) {
+        this.maxPerDrain = Math.max(1, maxPerDrain);
+        this.charsPerSecond = Math.max(1, charsPerSecond);
+        this.burstChars = Math.max(1, burstChars);
+        this.maxDistance = maxDistance;
+        this.ttlMs = ttlMs;
+        this.tokens = this.burstChars;
+    }
+
+    /** Defaults tuned for about one spoken overhead line at a time; overridable with osrs.tts.overhead* properties. */
+    public static OverheadSpeechBudget fromSystemProperties() {
+        return new OverheadSpeechBudget(
+                Integer.getInteger("osrs.tts.overheadMaxPerTick", 1),
+                Integer.getInteger("osrs.tts.overheadCharsPerSec", 20),
+                Integer.getInteger("osrs.tts.overheadBurstChars", 100),
+                Integer.getInteger("osrs.tts.overheadMaxDistance", 15),
+                Long.getLong("osrs.tts.overheadTtlMs", 1800L));
+    }
+
+    /**
+     * Offer a new overhead line. A newer line from the same actor replaces its pending one.
+     * @param distance tiles from the local player, or -1 when unknown
+     */
+    public void offer(int actorIndex, Integer npcId, String speaker, String text, int distance, boolean onScreen, long nowMs) {
+        offered++;
+        if (distance > maxDistance) {
+            droppedFar++;
+            return;
+        }
+        int d = distance < 0 ? maxDistance : distance;
+        for (int i = 0; i < pending.size(); i++) {
+            if (pending.get(i).actorIndex == actorIndex) {
+                pending.remove(i);
+                replaced++;
+                break;
+            }
+        }
+        Candidate c = new Candidate(actorIndex, npcId, speaker, text, d, onScreen, nowMs);
+        if (pending.size() >= MAX_PENDING) {
+            // Push out the worst candidate (possibly this one)
+            int worst = -1;
+            double worstScore = c.score(nowMs);
+            for (int i = 0; i < pending.size(); i++) {
+                double s = pending.get(i).score(nowMs);
+                if (s > worstScore) { worst = i; worstScore = s; }
+            }
+            droppedOverflow++;
+            if (worst < 0) return;
+            pending.remove(worst);
+        }
+        pending.add(c);
+    }
+
+    /** Lines to speak now, best first; expired candidates are dropped and the rest wait for budget. */
+    public List<Candidate> drain(long nowMs) {
+        return drain(nowMs, c -> false);
+    }
+
+    /** As {@link #drain(long)}, dropping lines the speech layer would suppress as repeats before they cost budget. */
+    public List<Candidate> drain(long nowMs, Predicate<Candidate> repeat) {
+        refill(nowMs);
+        List<Candidate> out = new ArrayList<>(maxPerDrain);
+        pending.removeIf(c -> {
+            if (nowMs - c.offeredAtMs <= ttlMs) return false;
+            droppedExpired++;
+            return true;
+        });
+        if (pending.isEmpty()) return out;
+        pending.sort((a, b) -> Double.compare(a.score(nowMs), b.score(nowMs)));
+        while (out.size() < maxPerDrain && !pending.isEmpty()) {
+            Candidate best = pending.get(0);
+            if (repeat.test(best)) {
+                pending.remove(0);
+                droppedRepeat++;
+                continue;
+            }
+            // A line longer than the burst can still go out once the bucket is full
+            double cost = Math.min(best.text.length(), burstChars);
+            if (tokens < cost) break; // the best line waits; worse ones must not jump the queue
+            tokens -= cost;
+            pending.remove(0);
+            out.add(best);
+            spoken++;
+        }
+        return out;
+    }
+
+    /** Forget a pending line, e.g. when its actor despawns. */
+    public void remove(int actorIndex) {
+        pending.removeIf(c -> c.actorIndex == actorIndex);
+    }
+
+    public void clear() {
+        pending.clear();
+    }
+
+    public String getStats() {
+        return "offered=" + offered + " spoken=" + spoken + " pending=" + pending.size() + " droppedFar=" + droppedFar
+                + " droppedExpired=" + droppedExpired + " droppedOverflow=" + droppedOverflow + " droppedRepeat=" + droppedRepeat + " replaced=" + replaced
+                + " tokens=" + (int) tokens;
+    }
+
+    private void refill(long nowMs) {
+        if (refilledAtMs != 0L && nowMs > refilledAtMs) {
+            tokens = Math.min(burstChars, tokens + (nowMs - refilledAtMs) * charsPerSecond / 1000.0);
+        }
+        refilledAtMs = nowMs;
+    }
+}
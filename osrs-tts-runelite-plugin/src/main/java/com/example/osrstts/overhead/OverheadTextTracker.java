@@ -0,0 +1,127 @@
+package com.example.osrstts.overhead;
+
+/**
+ * Last overhead text seen per actor, stored as a 64-bit fingerprint in a fixed-size open-addressing table
+ * keyed by actor index. Checking an actor on a tick allocates nothing; entries are removed on despawn and
+ * the table never grows past its bound (the least recently changed actor is evicted when full).
+ * Client thread only.
+ */
+public final class OverheadTextTracker {
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private final int maxEntries;
+    private final int mask;
+    private final int[] keys;
+    private final long[] fingerprints;
+    private final long[] stamps; // change order, for eviction
+    private int size;
+    private long clock;
+    private long evictions;
+
+    public OverheadTextTracker(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        // Keep the load factor at or below 0.5 so probe runs stay short
+        int cap = Integer.highestOneBit(this.maxEntries * 2 - 1) << 1;
+        this.mask = cap - 1;
+        this.keys = new int[cap];
+        this.fingerprints = new long[cap];
+        this.stamps = new long[cap];
+        java.util.Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Record the actor's current overhead text.
+     * @return true when it differs from the text last recorded for this actor (including a first sighting)
+     */
+    public boolean changed(int actorIndex, CharSequence text) {
+        long fp = fingerprint(text);
+        int slot = find(actorIndex);
+        if (slot >= 0) {
+            if (fingerprints[slot] == fp) return false;
+            fingerprints[slot] = fp;
+            stamps[slot] = ++clock;
+            return true;
+        }
+        if (size >= maxEntries) evictOldest();
+        slot = home(actorIndex);
+        while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+        keys[slot] = actorIndex;
+        fingerprints[slot] = fp;
+        stamps[slot] = ++clock;
+        size++;
+        return true;
+    }
+
+    /** Forget an actor, e.g. on despawn; its index may be reused by someone else. */
+    public void remove(int actorIndex) {
+        int slot = find(actorIndex);
+        if (slot >= 0) deleteSlot(slot);
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    public int size() { return size; }
+
+    public long evictions() { return evictions; }
+
+    /** 64-bit FNV-1a over the chars; never 0. */
+    public static long fingerprint(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == 0L ? 1L : h;
+    }
+
+    private int home(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int find(int key) {
+        int slot = home(key);
+        while (true) {
+            int k = keys[slot];
+            if (k == key) return slot;
+            if (k == EMPTY) return -1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void evictOldest() {
+        int oldest = -1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && (oldest < 0 || stamps[i] < stamps[oldest])) oldest = i;
+        }
+        if (oldest >= 0) {
+            deleteSlot(oldest);
+            evictions++;
+        }
+    }
+
+    // Linear-probing delete with backward shift, so lookups never need tombstones
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        keys[hole] = EMPTY;
+        size--;
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            int k = keys[j];
+            if (k == EMPTY) return;
+            int h = home(k);
+            // Entry at j may stay only if its home lies cyclically in (hole, j]
+            boolean stays = hole <= j ? (hole < h && h <= j) : (hole < h || h <= j);
+            if (stays) continue;
+            keys[hole] = k;
+            fingerprints[hole] = fingerprints[j];
+            stamps[hole] = stamps[j];
+            keys[j] = EMPTY;
+            hole = j;
+        }
+    }
+}
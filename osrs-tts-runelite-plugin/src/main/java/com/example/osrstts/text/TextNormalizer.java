@@ -0,0 +1,286 @@
+package com.example.osrstts.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Single-pass character scanners for the text clean-up done on every chat line, widget and cache key.
+ * Each method produces the same output as the regex chain it replaced (noted per method) on well-formed markup,
+ * but walks the input once and builds into a per-thread StringBuilder instead of allocating per replaceAll.
+ */
+public final class TextNormalizer {
+    private TextNormalizer() {}
+
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private static StringBuilder builder() {
+        StringBuilder sb = BUILDER.get();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            // Don't pin a huge buffer to the thread after one long book page
+            sb = new StringBuilder(256);
+            BUILDER.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    /** Same as {@code s.replaceAll("<[^>]*>", "")}. */
+    public static String stripTags(String s) {
+        if (s == null) return "";
+        int lt = s.indexOf('<');
+        if (lt < 0) return s;
+        return stripTags(s, lt, false);
+    }
+
+    /** Same as {@code s.replaceAll("<[^>]*>", " ")}. */
+    public static String stripTagsToSpace(String s) {
+        if (s == null) return "";
+        int lt = s.indexOf('<');
+        if (lt < 0) return s;
+        return stripTags(s, lt, true);
+    }
+
+    private static String stripTags(String s, int firstLt, boolean space) {
+        StringBuilder sb = builder();
+        sb.append(s, 0, firstLt);
+        int i = firstLt;
+        int n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '<') {
+                int gt = s.indexOf('>', i + 1);
+                if (gt >= 0) {
+                    if (space) sb.append(' ');
+                    i = gt + 1;
+                    continue;
+                }
+                sb.append(s, i, n); // unterminated '<' is literal text
+                break;
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    /** Same as {@code stripTags(s).replaceAll("[^A-Za-z0-9 _-]", " ").trim()}: one space per disallowed code point. */
+    public static String sanitizeName(String s) {
+        if (s == null) return "";
+        StringBuilder sb = builder();
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '<') {
+                int gt = s.indexOf('>', i + 1);
+                if (gt >= 0) { i = gt + 1; continue; }
+            }
+            if (isNameChar(c)) {
+                sb.append(c);
+                i++;
+            } else {
+                sb.append(' ');
+                i += Character.charCount(s.codePointAt(i));
+            }
+        }
+        return trim(sb).toString();
+    }
+
+    /**
+     * Lower-case alphanumeric form for fuzzy containment checks. Same as lower-casing, stripping tags,
+     * turning every run of other characters into one space, collapsing whitespace and trimming.
+     */
+    public static String foldForContain(String s) {
+        if (s == null) return "";
+        String lower = s.toLowerCase(Locale.ROOT);
+        StringBuilder sb = builder();
+        boolean pendingSpace = false;
+        int n = lower.length();
+        int i = 0;
+        while (i < n) {
+            char c = lower.charAt(i);
+            if (c == '<') {
+                int gt = lower.indexOf('>', i + 1);
+                if (gt >= 0) { i = gt + 1; continue; }
+            }
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                pendingSpace = false;
+                sb.append(c);
+            } else {
+                pendingSpace = true;
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Speech/cache-key form of a line. Same as replacing tags with a space, turning CR/LF into spaces,
+     * trimming and collapsing whitespace runs to one space.
+     */
+    public static String collapseForSpeech(String s) {
+        if (s == null) return "";
+        StringBuilder sb = builder();
+        boolean inSpace = false;
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '<') {
+                int gt = s.indexOf('>', i + 1);
+                if (gt >= 0) {
+                    c = ' ';
+                    i = gt;
+                }
+            }
+            i++;
+            if (isRegexSpace(c)) {
+                if (!inSpace) sb.append(' ');
+                inSpace = true;
+            } else {
+                sb.append(c);
+                inSpace = false;
+            }
+        }
+        trim(sb);
+        return s.contentEquals(sb) ? s : sb.toString();
+    }
+
+    /**
+     * Tolerant lookup key for NPC names: typographic dashes/quotes and nbsp folded, trimmed, lower-cased,
+     * whitespace runs collapsed, leading and trailing ASCII punctuation removed.
+     */
+    public static String nameKey(String name) {
+        if (name == null) return null;
+        String n = name
+                .replace('\u00A0', ' ') // non-breaking space
+                .replace('\u2019', '\'') // curly apostrophe to straight
+                .replace('\u2013', '-') // en-dash to hyphen
+                .replace('\u2014', '-') // em-dash to hyphen
+                .trim()
+                .toLowerCase(Locale.ROOT);
+        StringBuilder sb = builder();
+        boolean inSpace = false;
+        for (int i = 0, len = n.length(); i < len; i++) {
+            char c = n.charAt(i);
+            if (isRegexSpace(c)) {
+                if (!inSpace) sb.append(' ');
+                inSpace = true;
+            } else {
+                sb.append(c);
+                inSpace = false;
+            }
+        }
+        int start = 0;
+        int end = sb.length();
+        while (start < end && isAsciiPunct(sb.charAt(start))) start++;
+        // Like regex '$', the trailing run may also sit just before a final line separator
+        int tail = end > start && isLineTerminator(sb.charAt(end - 1)) ? end - 1 : end;
+        int cut = tail;
+        while (cut > start && isAsciiPunct(sb.charAt(cut - 1))) cut--;
+        if (cut < tail) sb.delete(cut, tail);
+        return sb.substring(start, end - (tail - cut));
+    }
+
+    /**
+     * Cleaned visible lines of widget markup: {@code <br>} starts a new line, other tags are dropped,
+     * tabs/CR/FF/VT become spaces, space runs collapse, and each line is trimmed; empty lines are skipped.
+     */
+    public static List<String> visibleLines(String s) {
+        List<String> out = new ArrayList<>();
+        if (s == null || s.isEmpty()) return out;
+        StringBuilder sb = builder();
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '<') {
+                int brEnd = matchBr(s, i);
+                if (brEnd > 0) {
+                    flushLine(sb, out);
+                    i = brEnd;
+                    continue;
+                }
+                int gt = s.indexOf('>', i + 1);
+                if (gt >= 0) { i = gt + 1; continue; }
+            }
+            i++;
+            if (c == '\n') {
+                flushLine(sb, out);
+            } else if (c == '\u00A0' || c == '\t' || c == '\u000B' || c == '\f' || c == '\r' || c == ' ') {
+                if (sb.length() == 0 || sb.charAt(sb.length() - 1) != ' ') sb.append(' ');
+            } else {
+                sb.append(c);
+            }
+        }
+        flushLine(sb, out);
+        return out;
+    }
+
+    private static void flushLine(StringBuilder sb, List<String> out) {
+        trim(sb);
+        if (sb.length() > 0) out.add(sb.toString());
+        sb.setLength(0);
+    }
+
+    // Matches (?i)<br\s*/?> at i; returns the index after '>' or -1
+    private static int matchBr(String s, int i) {
+        int n = s.length();
+        if (i + 3 >= n) return -1;
+        if (Character.toLowerCase(s.charAt(i + 1)) != 'b' || Character.toLowerCase(s.charAt(i + 2)) != 'r') return -1;
+        int j = i + 3;
+        while (j < n && isRegexSpace(s.charAt(j))) j++;
+        if (j < n && s.charAt(j) == '/') j++;
+        return j < n && s.charAt(j) == '>' ? j + 1 : -1;
+    }
+
+    /**
+     * Same as {@code s.matches(".*[.!?]\\s*$")}: the last non-whitespace char is . ! or ? and no line
+     * break precedes it.
+     */
+    public static boolean endsSentence(String s) {
+        if (s == null) return false;
+        int k = s.length() - 1;
+        while (k >= 0 && isRegexSpace(s.charAt(k))) k--;
+        if (k < 0) return false;
+        char c = s.charAt(k);
+        if (c != '.' && c != '!' && c != '?') return false;
+        for (int i = 0; i < k; i++) {
+            if (isLineTerminator(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static StringBuilder trim(StringBuilder sb) {
+        // String.trim() semantics: strip chars <= U+0020 at both ends
+        int end = sb.length();
+        while (end > 0 && sb.charAt(end - 1) <= ' ') end--;
+        sb.setLength(end);
+        int start = 0;
+        while (start < end && sb.charAt(start) <= ' ') start++;
+        if (start > 0) sb.delete(0, start);
+        return sb;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == ' ' || c == '_' || c == '-';
+    }
+
+    // java.util.regex \s without UNICODE_CHARACTER_CLASS
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Characters '.' does not match without DOTALL
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    // \p{Punct}: !"#$%&'()*+,-./:;<=>?@[\]^_`{|}~
+    private static boolean isAsciiPunct(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+}
@@ -8,17 +8,68 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import com.example.osrstts.OsrsTtsConfig;
+import com.example.osrstts.voice.WavUtil;
 
 public class AzureSpeechTtsClient implements TtsClient {
     private final String key;
     private final String region;
+    private final int pcmBytesPerSec;
     private final String outputFormat; // e.g., "riff-24khz-16bit-mono-pcm" or "audio-16khz-128kbitrate-mono-mp3"
 
+    // Azure TTS limit is 5000 chars per request (as of 2025)
+    private static final int MAX_CHARS = 5000;
+
+    // Batching (opt-in with osrs.tts.azureBatch=true): lines requested within a short linger window go out as one
+    // SSML document. The REST endpoint returns audio only (bookmark events need the Speech SDK's websocket), so
+    // lines are separated by a fixed <break> and the PCM is cut at those silences instead of at bookmark offsets.
+    private static final boolean BATCH = Boolean.getBoolean("osrs.tts.azureBatch");
+    // Used instead of PCM while the link is slow (osrs.tts.adaptiveFormat); an eighth of the bytes
+    private static final String COMPRESSED_FORMAT = "audio-24khz-48kbitrate-mono-mp3";
+    private static final int COMPRESSED_FORMAT_BYTES_PER_SEC = 48_000 / 8;
+    private static final BandwidthMonitor BANDWIDTH = BandwidthMonitor.shared();
+    private static final long BATCH_LINGER_MS = Long.getLong("osrs.tts.azureBatchLingerMs", 40L);
+    private static final int MAX_BATCH_LINES = 16;
+    private static final int BREAK_MS = 1000;
+    private static final int MIN_GAP_MS = 850;    // a silence this long can only be one of our breaks
+    private static final int PAD_MS = 120;        // silence kept either side of a cut
+    private static final int SILENCE_PEAK = 400;  // 16-bit magnitude, about -38 dBFS
+
+    private static final class Pending {
+        final String text;
+        final VoiceSelection sel;
+        final CancellationToken token;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        Pending(String text, VoiceSelection sel, CancellationToken token) {
+            this.text = text;
+            this.sel = sel;
+            this.token = token;
+        }
+    }
+
+    private final Object batchLock = new Object();
+    private List<Pending> collecting; // batch waiting out its linger window, null when none
+    private int collectingChars;
+    private long batchRequests;
+    private long batchedLines;
+    private long splitFallbacks;
+
     // We will explicitly create an HTTP/1.1 client for parity with curl
+    private final ExecutorService httpThreads = ProviderThreads.newExecutor("osrs-tts-http");
     private final HttpClient http11 = HttpClient.newBuilder()
             .version(HttpClient.Version.HTTP_1_1)
             .connectTimeout(Duration.ofSeconds(15))
+            .executor(httpThreads)
             .build();
 
     public AzureSpeechTtsClient(String key, String region, String outputFormat) {
@@ -31,15 +82,107 @@ public class AzureSpeechTtsClient implements TtsClient {
         } else {
             this.outputFormat = outputFormat;
         }
+        Matcher khz = Pattern.compile("(\\d+)khz").matcher(this.outputFormat.toLowerCase());
+        this.pcmBytesPerSec = khz.find() ? Integer.parseInt(khz.group(1)) * 1000 * 2 : 48_000;
     }
 
     @Override
     public byte[] synthesize(String text, VoiceSelection sel) throws Exception {
-        // Azure TTS limit is 5000 chars per request (as of 2025)
-        if (text.length() > 5000) {
-            throw new IllegalArgumentException("Text too long for Azure TTS (max 5000 chars per request). Split into smaller chunks.");
+        return TtsClient.await(single(text, sel, CancellationToken.NONE));
+    }
+
+    /**
+     * With batching enabled, lines arriving together share one request; otherwise one request per line.
+     * Cancelling the token aborts a line's own request, or takes it out of a batch that hasn't been sent yet.
+     */
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(String text, VoiceSelection sel, CancellationToken token) {
+        if (!BATCH || text.length() > MAX_CHARS) return single(text, sel, token);
+        Pending p = new Pending(text, sel, token);
+        List<Pending> full = null;
+        synchronized (batchLock) {
+            if (collecting != null && (collectingChars + text.length() > MAX_CHARS || collecting.size() >= MAX_BATCH_LINES)) {
+                full = collecting;
+                collecting = null;
+            }
+            if (collecting == null) {
+                List<Pending> batch = new ArrayList<>();
+                collecting = batch;
+                collectingChars = 0;
+                CompletableFuture.delayedExecutor(BATCH_LINGER_MS, TimeUnit.MILLISECONDS).execute(() -> flushIfCollecting(batch));
+            }
+            collecting.add(p);
+            collectingChars += text.length();
+        }
+        token.onCancel(() -> {
+            synchronized (batchLock) {
+                if (collecting != null && collecting.remove(p)) collectingChars -= p.text.length();
+            }
+            p.result.cancel(false); // a batch already sent still completes for the other lines
+        });
+        if (full != null) runBatch(full);
+        return p.result;
+    }
+
+    private CompletableFuture<byte[]> single(String text, VoiceSelection sel, CancellationToken token) {
+        if (text.length() > MAX_CHARS) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Text too long for Azure TTS (max 5000 chars per request). Split into smaller chunks."));
         }
-        final String ssml = buildSsml(sel.voiceName, sel.style, text);
+        String format = BANDWIDTH.useCompressed("Azure") ? COMPRESSED_FORMAT : outputFormat;
+        return postAsync(buildSsml(sel.voiceName, sel.style, text), format, token);
+    }
+
+    private void flushIfCollecting(List<Pending> batch) {
+        synchronized (batchLock) {
+            if (collecting != batch) return; // already sent because it filled up
+            collecting = null;
+        }
+        runBatch(batch);
+    }
+
+    private void runBatch(List<Pending> all) {
+        List<Pending> batch = new ArrayList<>(all.size());
+        for (Pending p : all) if (!p.result.isDone()) batch.add(p); // skipped while lingering
+        if (batch.isEmpty()) return;
+        if (batch.size() == 1) {
+            synthesizeOne(batch.get(0));
+            return;
+        }
+        postAsync(buildBatchSsml(batch), outputFormat, CancellationToken.NONE) // splitting needs PCM
+                .thenApply(wav -> splitAtBreaks(wav, batch.size()))
+                .whenComplete((parts, ex) -> deliverBatch(batch, ex == null ? parts : null));
+    }
+
+    private void deliverBatch(List<Pending> batch, List<byte[]> parts) {
+        synchronized (batchLock) {
+            if (parts != null) {
+                batchRequests++;
+                batchedLines += batch.size();
+            } else {
+                splitFallbacks++;
+            }
+        }
+        if ("true".equalsIgnoreCase(System.getProperty("osrs.tts.debug", "false"))) {
+            System.out.println("Azure TTS batch of " + batch.size() + " lines " + (parts != null ? "split" : "fell back to single requests")
+                    + " (batches=" + batchRequests + " lines=" + batchedLines + " fallbacks=" + splitFallbacks + ")");
+        }
+        if (parts == null) {
+            // One request per line, so per-line error handling (e.g. the voice fallback on 400) still applies
+            for (Pending p : batch) synthesizeOne(p);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) batch.get(i).result.complete(parts.get(i));
+    }
+
+    private void synthesizeOne(Pending p) {
+        single(p.text, p.sel, p.token).whenComplete((audio, ex) -> {
+            if (ex == null) p.result.complete(audio);
+            else p.result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+        });
+    }
+
+    private CompletableFuture<byte[]> postAsync(String ssml, String format, CancellationToken token) {
+        if (token.isCancelled()) return CompletableFuture.failedFuture(new CancellationException("skipped before request"));
         final String trimmedKey = key.trim();
 
         byte[] bodyUtf8 = ssml.getBytes(StandardCharsets.UTF_8);
@@ -48,22 +191,28 @@ public class AzureSpeechTtsClient implements TtsClient {
                 .uri(URI.create("https://" + region + ".tts.speech.microsoft.com/cognitiveservices/v1"))
                 .timeout(Duration.ofSeconds(30))
                 .header("Content-Type", "application/ssml+xml")
-                .header("X-Microsoft-OutputFormat", outputFormat)
+                .header("X-Microsoft-OutputFormat", format)
                 .header("Ocp-Apim-Subscription-Key", trimmedKey)
                 .header("User-Agent", "osrs-tts-plugin")
                 .POST(HttpRequest.BodyPublishers.ofByteArray(bodyUtf8))
                 .build();
 
-        HttpResponse<byte[]> resp = http11.send(req, HttpResponse.BodyHandlers.ofByteArray());
-
-        if (resp.statusCode() / 100 == 2) {
-            return resp.body();
-        }
+        long[] headersAt = new long[1];
+        CompletableFuture<HttpResponse<byte[]>> call = http11.sendAsync(req, token.guard(BandwidthMonitor.timedBody(headersAt)));
+        token.onCancel(() -> call.cancel(true));
+        return call.thenApply(resp -> {
+            if (resp.statusCode() / 100 == 2) {
+                byte[] audio = resp.body();
+                boolean compressed = format.equals(COMPRESSED_FORMAT);
+                BANDWIDTH.record("Azure", audio.length, System.nanoTime() - headersAt[0], compressed, pcmBytesPerSec, COMPRESSED_FORMAT_BYTES_PER_SEC);
+                return audio;
+            }
 
-        String errorBody = safeToString(resp.body());
-        System.out.println("Azure TTS Error " + resp.statusCode() + ": " + errorBody);
-        System.out.println("Response headers: " + resp.headers().map());
-        throw new RuntimeException("Azure TTS error " + resp.statusCode() + ": " + errorBody);
+            String errorBody = safeToString(resp.body());
+            System.out.println("Azure TTS Error " + resp.statusCode() + ": " + errorBody);
+            System.out.println("Response headers: " + resp.headers().map());
+            throw new RuntimeException("Azure TTS error " + resp.statusCode() + ": " + errorBody);
+        });
     }
 
     /** Optional: convenience to list voices for quick region/key sanity check. */
@@ -83,34 +232,142 @@ public class AzureSpeechTtsClient implements TtsClient {
         return "Voices list failed " + resp.statusCode() + ": " + resp.body();
     }
 
+    /** Authenticated voices list with the body discarded; leaves a warm connection in the client's pool. */
+    @Override
+    public void warmUp() throws Exception {
+        http11.send(voicesRequest("GET"), HttpResponse.BodyHandlers.discarding());
+    }
+
+    /** HEAD on the voices list: headers only, enough to keep the pooled connection in use. */
+    @Override
+    public void keepAlive() throws Exception {
+        http11.send(voicesRequest("HEAD"), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private HttpRequest voicesRequest(String method) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("https://" + region + ".tts.speech.microsoft.com/cognitiveservices/voices/list"))
+                .timeout(Duration.ofSeconds(15))
+                .header("Ocp-Apim-Subscription-Key", key.trim())
+                .header("User-Agent", "osrs-tts-plugin")
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
     // ---- Helpers ----
 
     private String buildSsml(String voice, String style, String text) {
+        String locale = localeOf(voice);
+        // Keep SSML simple and let Azure choose gender based on voice name
+        return "<speak version='1.0' xml:lang='" + locale + "'>"
+                + "<voice xml:lang='" + locale + "' name='" + voice + "'>"
+                + escapeXml(text)
+                + "</voice>"
+                + "</speak>";
+    }
+
+    // One <voice> element per line (speakers may differ), each but the last ending in the separating break
+    private String buildBatchSsml(List<Pending> batch) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<speak version='1.0' xml:lang='").append(localeOf(batch.get(0).sel.voiceName)).append("'>");
+        for (int i = 0; i < batch.size(); i++) {
+            Pending p = batch.get(i);
+            sb.append("<voice xml:lang='").append(localeOf(p.sel.voiceName)).append("' name='").append(p.sel.voiceName).append("'>")
+                    .append(escapeXml(p.text));
+            if (i < batch.size() - 1) sb.append("<break time='").append(BREAK_MS).append("ms'/>");
+            sb.append("</voice>");
+        }
+        return sb.append("</speak>").toString();
+    }
+
+    private static String escapeXml(String text) {
         // Escape minimal XML entities
-        String escaped = text
+        return text
                 .replace("&", "&amp;")
                 .replace("<", "&lt;")
                 .replace(">", "&gt;")
                 .replace("\"", "&quot;")
                 .replace("'", "&apos;");
+    }
 
-        // Derive locale from voice short name (e.g., en-GB-RyanNeural -> en-GB)
-        String locale = "en-US";
+    // Derive locale from voice short name (e.g., en-GB-RyanNeural -> en-GB)
+    private static String localeOf(String voice) {
         if (voice != null) {
             String[] parts = voice.split("-");
             if (parts.length >= 2) {
-                locale = parts[0] + "-" + parts[1];
+                return parts[0] + "-" + parts[1];
             }
         }
+        return "en-US";
+    }
 
-        // Keep SSML simple and let Azure choose gender based on voice name
-        return "<speak version='1.0' xml:lang='" + locale + "'>"
-                + "<voice xml:lang='" + locale + "' name='" + voice + "'>"
-                + escaped
-                + "</voice>"
-                + "</speak>";
+    /**
+     * Cut a 16-bit mono RIFF/PCM response into {@code parts} WAVs at the silences left by the separating breaks.
+     * @return null when the audio isn't 16-bit mono PCM or the number of long silences doesn't match
+     */
+    static List<byte[]> splitAtBreaks(byte[] wav, int parts) {
+        if (wav == null || wav.length < 12 || wav[0] != 'R' || wav[1] != 'I' || wav[2] != 'F' || wav[3] != 'F'
+                || wav[8] != 'W' || wav[9] != 'A' || wav[10] != 'V' || wav[11] != 'E') return null;
+        int rate = 0, dataOff = -1, dataLen = 0;
+        boolean pcm16Mono = false;
+        for (int pos = 12; pos + 8 <= wav.length; ) {
+            int size = le32(wav, pos + 4);
+            if ((wav[pos] == 'f' && wav[pos + 1] == 'm' && wav[pos + 2] == 't') && pos + 24 <= wav.length) {
+                pcm16Mono = le16(wav, pos + 8) == 1 && le16(wav, pos + 10) == 1 && le16(wav, pos + 22) == 16;
+                rate = le32(wav, pos + 12);
+            } else if (wav[pos] == 'd' && wav[pos + 1] == 'a' && wav[pos + 2] == 't' && wav[pos + 3] == 'a') {
+                dataOff = pos + 8;
+                dataLen = (size < 0 || dataOff + size > wav.length) ? wav.length - dataOff : size;
+                break;
+            }
+            if (size < 0) return null;
+            pos += 8 + size + (size & 1);
+        }
+        if (!pcm16Mono || rate <= 0 || dataOff < 0) return null;
+
+        // Silent 10ms windows, then runs of them long enough to be a break (never the lead-in or the tail)
+        int samples = dataLen / 2;
+        int win = Math.max(1, rate / 100);
+        int windows = samples / win;
+        int minGapWindows = MIN_GAP_MS / 10;
+        List<int[]> gaps = new ArrayList<>(); // sample ranges [start, end)
+        int runStart = -1;
+        for (int w = 0; w <= windows; w++) {
+            boolean silent = w < windows && peak(wav, dataOff, w * win, win) < SILENCE_PEAK;
+            if (silent) {
+                if (runStart < 0) runStart = w;
+            } else if (runStart >= 0) {
+                if (runStart > 0 && w < windows && w - runStart >= minGapWindows) gaps.add(new int[] {runStart * win, w * win});
+                runStart = -1;
+            }
+        }
+        if (gaps.size() != parts - 1) return null;
+
+        int pad = rate * PAD_MS / 1000;
+        List<byte[]> out = new ArrayList<>(parts);
+        int from = 0;
+        for (int i = 0; i < parts; i++) {
+            int to = i < gaps.size() ? gaps.get(i)[0] + pad : samples;
+            byte[] pcm = new byte[(to - from) * 2];
+            System.arraycopy(wav, dataOff + from * 2, pcm, 0, pcm.length);
+            out.add(WavUtil.wrapPcmToWav(pcm, rate, (short) 16, (short) 1));
+            if (i < gaps.size()) from = gaps.get(i)[1] - pad;
+        }
+        return out;
     }
 
+    private static int peak(byte[] b, int dataOff, int fromSample, int count) {
+        int max = 0;
+        for (int i = 0, o = dataOff + fromSample * 2; i < count; i++, o += 2) {
+            int v = Math.abs((short) ((b[o] & 0xFF) | (b[o + 1] << 8)));
+            if (v > max) max = v;
+        }
+        return max;
+    }
+
+    private static int le16(byte[] b, int o) { return (b[o] & 0xFF) | (b[o + 1] & 0xFF) << 8; }
+    private static int le32(byte[] b, int o) { return le16(b, o) | le16(b, o + 2) << 16; }
+
     private static String safeToString(byte[] bytes) {
         try {
             return bytes == null ? "" : new String(bytes, StandardCharsets.UTF_8);
@@ -122,5 +379,5 @@ public class AzureSpeechTtsClient implements TtsClient {
     @Override public boolean isConfigured(OsrsTtsConfig config) { return key != null && !key.isBlank() && region != null && !region.isBlank(); }
     @Override public boolean testConnection(OsrsTtsConfig config) { try { listVoicesSample(); return true; } catch (Exception e) { return false; } }
     @Override public String getProviderName() { return "Azure"; }
-    @Override public void shutdown() { }
+    @Override public void shutdown() { httpThreads.shutdown(); }
 }
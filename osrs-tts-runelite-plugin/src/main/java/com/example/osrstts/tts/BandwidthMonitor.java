@@ -0,0 +1,129 @@
+package com.example.osrstts.tts;
+
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-provider download throughput, used to choose between uncompressed PCM and a compressed MP3 format
+ * (osrs.tts.adaptiveFormat=true). Throughput is measured on the body transfer only, from response headers
+ * to the last byte, and smoothed; below osrs.tts.adaptiveLowKbps the provider is asked for MP3, above
+ * osrs.tts.adaptiveHighKbps it goes back to PCM. Short MP3 bodies arrive within a round trip or two and
+ * can't show that the link got faster, so while compressed every osrs.tts.adaptiveProbeLines-th line is
+ * fetched as PCM to measure again. Also keeps the bytes and transfer time that MP3 saved.
+ */
+public final class BandwidthMonitor {
+    private static final BandwidthMonitor SHARED = new BandwidthMonitor(
+            Boolean.getBoolean("osrs.tts.adaptiveFormat"),
+            Long.getLong("osrs.tts.adaptiveLowKbps", 1500L),
+            Long.getLong("osrs.tts.adaptiveHighKbps", 4000L),
+            Integer.getInteger("osrs.tts.adaptiveProbeLines", 15));
+
+    private static final int MIN_SAMPLE_BYTES = 16 * 1024; // smaller bodies measure round trips, not bandwidth
+    private static final int MIN_SAMPLES = 3;
+    private static final double ALPHA = 0.3;
+
+    private static final class Link {
+        double kbps;
+        int samples;
+        boolean compressed;
+        long switches;
+        int sinceProbe;
+        long probes;
+        long pcmLines, pcmTransferMs;
+        long mp3Lines, mp3TransferMs;
+        long bytesSaved;
+        double msSaved;
+    }
+
+    private final boolean enabled;
+    private final long lowKbps;
+    private final long highKbps;
+    private final int probeEvery;
+    private final Map<String, Link> links = new LinkedHashMap<>();
+
+    BandwidthMonitor(boolean enabled, long lowKbps, long highKbps, int probeEvery) {
+        this.enabled = enabled;
+        this.lowKbps = lowKbps;
+        this.highKbps = Math.max(lowKbps, highKbps);
+        this.probeEvery = Math.max(2, probeEvery);
+    }
+
+    /** One monitor for the process, so measurements survive runtime rebuilds. */
+    public static BandwidthMonitor shared() { return SHARED; }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** Whether the next request to this provider should ask for the compressed format. */
+    public synchronized boolean useCompressed(String provider) {
+        if (!enabled) return false;
+        Link l = link(provider);
+        if (!l.compressed) return false;
+        if (++l.sinceProbe < probeEvery) return true;
+        l.sinceProbe = 0;
+        l.probes++;
+        return false;
+    }
+
+    /**
+     * Record a successful download.
+     * @param pcmBytesPerSec        bytes per second of speech in the provider's PCM format
+     * @param compressedBytesPerSec bytes per second of speech in its compressed format
+     */
+    public synchronized void record(String provider, long bytes, long transferNanos, boolean compressed,
+                                    int pcmBytesPerSec, int compressedBytesPerSec) {
+        if (!enabled) return;
+        Link l = link(provider);
+        long ms = transferNanos / 1_000_000L;
+        if (compressed) {
+            l.mp3Lines++;
+            l.mp3TransferMs += ms;
+            long pcmEquivalent = bytes * pcmBytesPerSec / Math.max(1, compressedBytesPerSec);
+            l.bytesSaved += pcmEquivalent - bytes;
+            if (l.kbps > 0) l.msSaved += (pcmEquivalent - bytes) * 8.0 / l.kbps;
+        } else {
+            l.pcmLines++;
+            l.pcmTransferMs += ms;
+        }
+        if (bytes < MIN_SAMPLE_BYTES) return;
+        double kbps = bytes * 8.0 / Math.max(1_000_000L, transferNanos) * 1_000_000.0; // floor 1ms
+        l.kbps = l.samples == 0 ? kbps : ALPHA * kbps + (1 - ALPHA) * l.kbps;
+        l.samples++;
+        if (l.samples < MIN_SAMPLES) return;
+        if (!l.compressed && l.kbps < lowKbps) {
+            l.compressed = true;
+            l.switches++;
+        } else if (l.compressed && l.kbps > highKbps) {
+            l.compressed = false;
+            l.switches++;
+        }
+    }
+
+    /** Body handler that reads the body into memory and stores when the headers arrived in {@code headersAt[0]}. */
+    public static HttpResponse.BodyHandler<byte[]> timedBody(long[] headersAt) {
+        return info -> {
+            headersAt[0] = System.nanoTime();
+            return HttpResponse.BodySubscribers.ofByteArray();
+        };
+    }
+
+    public synchronized String getStats() {
+        if (!enabled) return "adaptiveFormat=off";
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Link> e : links.entrySet()) {
+            Link l = e.getValue();
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(e.getKey()).append('=').append(l.compressed ? "mp3" : "pcm")
+                    .append(" kbps=").append(Math.round(l.kbps))
+                    .append(" switches=").append(l.switches).append(" probes=").append(l.probes)
+                    .append(" pcmLines=").append(l.pcmLines).append(" avgPcmTransferMs=").append(l.pcmLines == 0 ? 0 : l.pcmTransferMs / l.pcmLines)
+                    .append(" mp3Lines=").append(l.mp3Lines).append(" avgMp3TransferMs=").append(l.mp3Lines == 0 ? 0 : l.mp3TransferMs / l.mp3Lines)
+                    .append(" savedKB=").append(l.bytesSaved / 1024).append(" savedMs=").append(Math.round(l.msSaved));
+        }
+        return sb.length() == 0 ? "adaptiveFormat=on" : sb.toString();
+    }
+
+    private Link link(String provider) {
+        return links.computeIfAbsent(provider, k -> new Link());
+    }
+}
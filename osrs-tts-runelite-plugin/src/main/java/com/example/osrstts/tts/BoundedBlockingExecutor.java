@@ -0,0 +1,120 @@
+package com.example.osrstts.tts;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Adapter for providers whose calls block (Polly's SDK, Piper's pipes): at most {@code maxConcurrent} calls
+ * run at once, each on a {@link ProviderThreads} thread, and the rest wait in a queue without holding a
+ * thread. A queued call whose token is cancelled is never started.
+ */
+public final class BoundedBlockingExecutor implements Executor {
+    private static final BoundedBlockingExecutor SHARED =
+            new BoundedBlockingExecutor("osrs-tts-blocking", Integer.getInteger("osrs.tts.blockingCalls", 4));
+
+    private final String name;
+    private final int maxConcurrent;
+    private final ExecutorService threads;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+    private int peakWaiting;
+    private long completed;
+    private long skipped;
+    private boolean shutdown;
+
+    public BoundedBlockingExecutor(String name, int maxConcurrent) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.threads = ProviderThreads.newExecutor(name);
+    }
+
+    /** For {@link TtsClient}'s default async adapter. */
+    static BoundedBlockingExecutor shared() { return SHARED; }
+
+    /**
+     * Run {@code call} when a slot is free; fails with a CancellationException if the token is cancelled first,
+     * and with a RejectedExecutionException after shutdown. Never throws itself.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call, CancellationToken token) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        token.onCancel(() -> f.completeExceptionally(new CancellationException("skipped")));
+        try {
+            execute(() -> run(f, call));
+        } catch (RejectedExecutionException e) {
+            f.completeExceptionally(e);
+        }
+        return f;
+    }
+
+    private <T> void run(CompletableFuture<T> f, Callable<T> call) {
+        if (f.isDone() || isShutdown()) {
+            f.completeExceptionally(new CancellationException(name + " shut down"));
+            synchronized (this) { skipped++; }
+            return;
+        }
+        try {
+            f.complete(call.call());
+        } catch (Exception e) {
+            f.completeExceptionally(e);
+        }
+    }
+
+    /** @throws RejectedExecutionException after {@link #shutdown()} */
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            if (shutdown) throw new RejectedExecutionException(name + " is shut down");
+            if (running >= maxConcurrent) {
+                waiting.add(task);
+                peakWaiting = Math.max(peakWaiting, waiting.size());
+                return;
+            }
+            running++;
+        }
+        start(task);
+    }
+
+    private void start(Runnable task) {
+        try {
+            threads.execute(() -> drain(task));
+        } catch (RejectedExecutionException e) {
+            // shut down between the check in execute() and here: give the slot back
+            synchronized (this) { running--; }
+            throw e;
+        }
+    }
+
+    private void drain(Runnable task) {
+        Runnable next = task;
+        while (next != null) {
+            try {
+                next.run();
+            } catch (RuntimeException ignored) {
+                // the task's own future carries the error
+            }
+            synchronized (this) {
+                completed++;
+                next = waiting.poll();
+                if (next == null) running--;
+            }
+        }
+    }
+
+    /** Refuse new calls; queued ones fail with a CancellationException and running ones finish on their own. */
+    public void shutdown() {
+        synchronized (this) { shutdown = true; }
+        threads.shutdown();
+    }
+
+    private synchronized boolean isShutdown() { return shutdown; }
+
+    public synchronized String getStats() {
+        return name + " threads=" + ProviderThreads.kind() + " max=" + maxConcurrent + " running=" + running
+                + " queued=" + waiting.size() + " peakQueued=" + peakWaiting + " completed=" + completed + " skipped=" + skipped;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.osrstts.tts;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Cancellation owned by one utterance. Whoever drops the line (superseded, past its deadline, discarded)
+ * cancels the token; clients register what to abort, such as the in-flight HTTP exchange, so a skipped line
+ * stops costing bandwidth and quota. Thread-safe; callbacks run once, on the cancelling thread.
+ */
+public final class CancellationToken {
+    /** Never cancelled; for callers with nothing to cancel. */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private List<Runnable> callbacks = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /** @return true if this call cancelled the token, false if it already was (or is {@link #NONE}) */
+    public boolean cancel() {
+        if (this == NONE) return false;
+        List<Runnable> run;
+        synchronized (this) {
+            if (cancelled) return false;
+            cancelled = true;
+            run = callbacks;
+            callbacks = null;
+        }
+        for (Runnable r : run) {
+            try {
+                r.run();
+            } catch (RuntimeException ignored) {}
+        }
+        return true;
+    }
+
+    public boolean isCancelled() { return cancelled; }
+
+    /** Run {@code action} when the token is cancelled, or right away if it already is. */
+    public void onCancel(Runnable action) {
+        if (this == NONE) return;
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /** A token cancelled with this one that can also be cancelled on its own (e.g. the losing leg of a hedge). */
+    public CancellationToken child() {
+        CancellationToken child = new CancellationToken();
+        onCancel(child::cancel);
+        return child;
+    }
+
+    /**
+     * Wraps a body handler so cancelling the token cancels the body subscription. That closes the connection
+     * mid-download instead of reading audio nobody will play, also on Java 11, where cancelling the future
+     * from {@code sendAsync} does not abort the exchange.
+     */
+    public <T> HttpResponse.BodyHandler<T> guard(HttpResponse.BodyHandler<T> handler) {
+        return info -> {
+            HttpResponse.BodySubscriber<T> inner = handler.apply(info);
+            return new HttpResponse.BodySubscriber<T>() {
+                @Override public CompletionStage<T> getBody() { return inner.getBody(); }
+                @Override public void onSubscribe(Flow.Subscription s) {
+                    inner.onSubscribe(s);
+                    onCancel(s::cancel);
+                }
+                @Override public void onNext(List<ByteBuffer> item) { inner.onNext(item); }
+                @Override public void onError(Throwable t) { inner.onError(t); }
+                @Override public void onComplete() { inner.onComplete(); }
+            };
+        };
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.osrstts.tts;
+
+/**
+ * Per-provider circuit breaker over a rolling window of recent calls. It opens when too many of them failed
+ * or were slow, rejects calls while open so an outage costs nothing per line, then lets a single probe
+ * through after a cool-down: success closes it again, failure reopens it. Thread-safe.
+ */
+public final class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int MIN_CALLS = 6; // don't judge a provider on fewer calls than this
+
+    private final String name;
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private final double failureRateToOpen;
+    private final long slowCallMs;
+    private final double slowRateToOpen;
+    private final long openMs;
+
+    private int count;
+    private int next;
+    private State state = State.CLOSED;
+    private long openUntilMs;
+    private boolean probeInFlight;
+
+    private long rejected;
+    private long opened;
+
+    public CircuitBreaker(String name, int window, double failureRateToOpen, long slowCallMs, double slowRateToOpen, long openMs) {
+        this.name = name;
+        int n = Math.max(MIN_CALLS, window);
+        this.failed = new boolean[n];
+        this.slow = new boolean[n];
+        this.failureRateToOpen = failureRateToOpen;
+        this.slowCallMs = slowCallMs;
+        this.slowRateToOpen = slowRateToOpen;
+        this.openMs = openMs;
+    }
+
+    /** Window of 20 calls, opens at 50% failures or 50% calls slower than 6s, stays open 30s; osrs.tts.breaker* overrides. */
+    public static CircuitBreaker fromSystemProperties(String name) {
+        return new CircuitBreaker(name,
+                Integer.getInteger("osrs.tts.breakerWindow", 20),
+                Integer.getInteger("osrs.tts.breakerFailurePercent", 50) / 100.0,
+                Long.getLong("osrs.tts.breakerSlowCallMs", 6000L),
+                Integer.getInteger("osrs.tts.breakerSlowPercent", 50) / 100.0,
+                Long.getLong("osrs.tts.breakerOpenMs", 30_000L));
+    }
+
+    /** Whether a call may go out now. After the cool-down exactly one caller gets through as the probe. */
+    public synchronized boolean allowRequest(long nowMs) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowMs < openUntilMs) break;
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) break;
+                probeInFlight = true;
+                return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    /** Record the outcome of a call that {@link #allowRequest} let through. */
+    public synchronized void record(boolean success, long latencyMs, long nowMs) {
+        boolean isSlow = latencyMs > slowCallMs;
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            if (success && !isSlow) {
+                state = State.CLOSED;
+                count = 0;
+                next = 0;
+            } else {
+                open(nowMs);
+            }
+            return;
+        }
+        failed[next] = !success;
+        slow[next] = isSlow;
+        next = (next + 1) % failed.length;
+        if (count < failed.length) count++;
+        if (state == State.CLOSED && count >= MIN_CALLS) {
+            int f = 0, s = 0;
+            for (int i = 0; i < count; i++) {
+                if (failed[i]) f++;
+                if (slow[i]) s++;
+            }
+            if (f >= failureRateToOpen * count || s >= slowRateToOpen * count) open(nowMs);
+        }
+    }
+
+    /** A call that was let through but cancelled by the caller; it isn't counted, but a probe slot is freed. */
+    public synchronized void cancelled() {
+        if (state == State.HALF_OPEN) probeInFlight = false;
+    }
+
+    public synchronized State state() { return state; }
+
+    public synchronized String getStats() {
+        return name + "=" + state.name().toLowerCase() + " opened=" + opened + " rejected=" + rejected;
+    }
+
+    private void open(long nowMs) {
+        state = State.OPEN;
+        openUntilMs = nowMs + openMs;
+        opened++;
+    }
+}
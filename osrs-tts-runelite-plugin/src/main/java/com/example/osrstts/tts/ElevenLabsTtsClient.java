@@ -1,15 +1,22 @@
 package com.example.osrstts.tts;
 
 import com.example.osrstts.voice.VoiceSelection;
+import com.example.osrstts.voice.WavUtil;
 
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import com.example.osrstts.OsrsTtsConfig;
 
@@ -18,73 +25,132 @@ public class ElevenLabsTtsClient implements TtsClient {
     private final String modelId;
     private final String outputFormat; // preferred format
 
+    private final ExecutorService httpThreads = ProviderThreads.newExecutor("osrs-tts-http");
     private final HttpClient http = HttpClient.newBuilder()
             .version(HttpClient.Version.HTTP_1_1)
             .connectTimeout(Duration.ofSeconds(15))
+            .executor(httpThreads)
             .build();
 
+    // Shared by every client instance, so a rebuilt runtime starts on the fast path
+    private static final OutputFormatMemory FORMATS = new OutputFormatMemory(Paths.get("config", "osrs-tts", "eleven-formats.json"));
+    private static final BandwidthMonitor BANDWIDTH = BandwidthMonitor.shared();
+    private static final String COMPRESSED_FORMAT = "mp3_22050_32";
+    private static final int COMPRESSED_FORMAT_BYTES_PER_SEC = 32_000 / 8;
+    private static final Pattern TIER = Pattern.compile("\"tier\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final String account;
+    private volatile String tier; // subscription tier once warmUp has seen it
+
     public ElevenLabsTtsClient(String apiKey, String modelId, String outputFormat) {
         this.apiKey = apiKey;
+        this.account = OutputFormatMemory.accountOf(apiKey);
         this.modelId = modelId == null || modelId.isBlank() ? "eleven_turbo_v2_5" : modelId;
-        // Prefer plain 'wav'; we'll fallback to other variants if server ignores
-        this.outputFormat = (outputFormat == null || outputFormat.isBlank()) ? "wav" : outputFormat;
+        // Preferred format; negotiated down once per model and account if the tier doesn't allow it
+        this.outputFormat = (outputFormat == null || outputFormat.isBlank()) ? "wav_22050" : outputFormat;
     }
 
     @Override
     public byte[] synthesize(String text, VoiceSelection sel) throws Exception {
+        return TtsClient.await(synthesizeAsync(text, sel, CancellationToken.NONE));
+    }
+
+    /** Non-blocking; cancelling the token aborts the HTTP exchange, including a format negotiation in progress. */
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(String text, VoiceSelection sel, CancellationToken token) {
         // ElevenLabs API limit is 2048 chars per request (as of 2025); split if needed
         if (text.length() > 2048) {
-            throw new IllegalArgumentException("Text too long for ElevenLabs (max 2048 chars per request). Split into smaller chunks.");
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Text too long for ElevenLabs (max 2048 chars per request). Split into smaller chunks."));
         }
-        String voiceId = extractVoiceId(sel.voiceName);
+        String voiceId = extractVoiceId(sel == null ? null : sel.voiceName);
         if (voiceId == null || voiceId.isBlank()) {
-            throw new IllegalArgumentException("ElevenLabs voice_id not set. Select a voice using the 'Load 11Labs Voices' button and pick one (Name (id)).");
+            return CompletableFuture.failedFuture(new IllegalArgumentException("ElevenLabs voice_id not set. Select a voice using the 'Load 11Labs Voices' button and pick one (Name (id))."));
         }
-        List<String> tried = new ArrayList<>();
-        // Try preferred first, then fallbacks commonly supported by ElevenLabs
-        String[] candidates = new String[] { this.outputFormat, "wav", "wav_22050", "pcm_16000", "pcm_22050" };
-        RuntimeException lastError = null;
-        for (String fmt : candidates) {
-            if (fmt == null || fmt.isBlank()) continue;
-            if (tried.contains(fmt)) continue;
-            tried.add(fmt);
-            try {
-                byte[] data = requestOnce(text, voiceId, fmt, sel == null ? null : sel.style);
-                // Accept whatever audio we received; playback will handle MP3 or WAV
-                return data;
-            } catch (RuntimeException ex) {
-                lastError = ex;
-            }
+        String style = sel == null ? null : sel.style;
+        if (BANDWIDTH.useCompressed("ElevenLabs")) {
+            // Slow link: low-bitrate MP3 is allowed on every tier, so no negotiation
+            return request(text, voiceId, COMPRESSED_FORMAT, style, token);
         }
-        if (lastError != null) throw lastError;
-        throw new RuntimeException("ElevenLabs TTS: no audio returned");
+        // Fast path: the format this model and account accepted before, exactly one request.
+        // Otherwise preferred first, then fallbacks; mp3_44100_128 is available on every tier and ends the search
+        String known = FORMATS.get(modelId, account);
+        List<String> candidates = new ArrayList<>();
+        if (known != null) candidates.add(known);
+        for (String fmt : new String[] { this.outputFormat, "wav_22050", "pcm_22050", "pcm_16000", "mp3_44100_128" }) {
+            if (fmt != null && !fmt.isBlank() && !candidates.contains(fmt)) candidates.add(fmt);
+        }
+        return negotiate(text, voiceId, style, candidates, 0, known, token);
+    }
+
+    private CompletableFuture<byte[]> negotiate(String text, String voiceId, String style, List<String> candidates, int i,
+                                                String known, CancellationToken token) {
+        String fmt = candidates.get(i);
+        return request(text, voiceId, fmt, style, token).handle((audio, ex) -> {
+            if (ex == null) {
+                FORMATS.remember(modelId, account, fmt, tier);
+                return CompletableFuture.completedFuture(audio);
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            // Auth, unknown voice, quota and server errors fail the same way in every format
+            if (!(cause instanceof StatusException) || !isFormatRejection((StatusException) cause) || i + 1 >= candidates.size()) {
+                return CompletableFuture.<byte[]>failedFuture(cause);
+            }
+            if (fmt.equals(known)) FORMATS.forget(modelId, account); // tier or model changed under us; negotiate again
+            return negotiate(text, voiceId, style, candidates, i + 1, known, token);
+        }).thenCompose(f -> f);
     }
 
-    private byte[] requestOnce(String text, String voiceId, String format, String style) throws Exception {
+    private CompletableFuture<byte[]> request(String text, String voiceId, String format, String style, CancellationToken token) {
+        if (token.isCancelled()) return CompletableFuture.failedFuture(new CancellationException("skipped before request"));
         String voiceSettings = voiceSettingsForStyle(style);
         String bodyJson = "{" +
                 jsonField("text", text) + "," +
                 jsonField("model_id", modelId) + "," +
-                jsonField("output_format", format) + "," +
                 "\"voice_settings\":" + voiceSettings +
                 "}";
 
+        // output_format is a query parameter; in the body it is ignored and MP3 comes back
         HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.elevenlabs.io/v1/text-to-speech/" + voiceId))
+                .uri(URI.create("https://api.elevenlabs.io/v1/text-to-speech/" + voiceId + "?output_format=" + format))
                 .timeout(Duration.ofSeconds(30))
                 .header("xi-api-key", apiKey.trim())
-                .header("accept", "audio/wav")
+                .header("accept", format.startsWith("mp3") ? "audio/mpeg" : "audio/wav")
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(bodyJson, StandardCharsets.UTF_8))
                 .build();
 
-        HttpResponse<byte[]> resp = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
-        if (resp.statusCode() / 100 == 2) {
-            return resp.body();
+        long[] headersAt = new long[1];
+        CompletableFuture<HttpResponse<byte[]>> call = http.sendAsync(req, token.guard(BandwidthMonitor.timedBody(headersAt)));
+        token.onCancel(() -> call.cancel(true));
+        return call.thenApply(resp -> {
+            if (resp.statusCode() / 100 == 2) {
+                byte[] audio = resp.body();
+                boolean compressed = format.equals(COMPRESSED_FORMAT);
+                BANDWIDTH.record("ElevenLabs", audio.length, System.nanoTime() - headersAt[0], compressed, 44_100, COMPRESSED_FORMAT_BYTES_PER_SEC);
+                // pcm_<rate> is headerless 16-bit mono; wrap it so playback and the cache see a WAV
+                if (format.startsWith("pcm_") && !looksRiffWav(audio)) {
+                    return WavUtil.wrapPcmToWav(audio, Integer.parseInt(format.substring(4)), (short) 16, (short) 1);
+                }
+                return audio;
+            }
+            String msg = tryUtf8(resp.body());
+            String ct = resp.headers().firstValue("content-type").orElse("");
+            throw new StatusException(resp.statusCode(), "ElevenLabs TTS error " + resp.statusCode() + " (ct=" + ct + "): " + msg);
+        });
+    }
+
+    private static boolean isFormatRejection(StatusException ex) {
+        int s = ex.status;
+        return s == 400 || s == 403 || s == 422;
+    }
+
+    private static final class StatusException extends RuntimeException {
+        final int status;
+
+        StatusException(int status, String message) {
+            super(message);
+            this.status = status;
         }
-        String msg = tryUtf8(resp.body());
-        String ct = resp.headers().firstValue("content-type").orElse("");
-        throw new RuntimeException("ElevenLabs TTS error " + resp.statusCode() + " (ct=" + ct + "): " + msg);
     }
 
     private static String voiceSettingsForStyle(String style) {
@@ -123,6 +189,56 @@ public class ElevenLabsTtsClient implements TtsClient {
         return "Voices list failed " + resp.statusCode() + ": " + resp.body();
     }
 
+    /**
+     * Subscription lookup: a small authenticated call that leaves a warm connection in the client's pool and
+     * tells us the account tier, which keys the remembered output format.
+     */
+    @Override
+    public void warmUp() throws Exception {
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create("https://api.elevenlabs.io/v1/user/subscription"))
+                .timeout(Duration.ofSeconds(15))
+                .header("xi-api-key", apiKey.trim())
+                .header("accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (resp.statusCode() / 100 != 2) return; // key without user_read: still warm, tier stays unknown
+        Matcher m = TIER.matcher(resp.body());
+        if (m.find()) {
+            tier = m.group(1);
+            FORMATS.noteTier(account, tier);
+        }
+    }
+
+    /** HEAD on the voices list: headers only, enough to keep the pooled connection in use. */
+    @Override
+    public void keepAlive() throws Exception {
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create("https://api.elevenlabs.io/v1/voices"))
+                .timeout(Duration.ofSeconds(15))
+                .header("xi-api-key", apiKey.trim())
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        http.send(req, HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * Conditional GET of the voices list. Pass the validators from the previous response (either may be null);
+     * a 304 status means the caller's copy is still current and the body is empty.
+     */
+    public HttpResponse<String> listVoicesConditional(String etag, String lastModified) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder()
+                .uri(URI.create("https://api.elevenlabs.io/v1/voices"))
+                .timeout(Duration.ofSeconds(15))
+                .header("xi-api-key", apiKey.trim())
+                .header("accept", "application/json")
+                .GET();
+        if (etag != null && !etag.isBlank()) b.header("If-None-Match", etag);
+        if (lastModified != null && !lastModified.isBlank()) b.header("If-Modified-Since", lastModified);
+        return http.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
     private static String jsonField(String k, String v) {
         return "\"" + k + "\":\"" + escapeJson(v) + "\"";
     }
@@ -164,5 +280,5 @@ public class ElevenLabsTtsClient implements TtsClient {
     @Override public boolean isConfigured(OsrsTtsConfig config) { return apiKey != null && !apiKey.isBlank(); }
     @Override public boolean testConnection(OsrsTtsConfig config) { try { listVoicesSample(); return true; } catch (Exception e) { return false; } }
     @Override public String getProviderName() { return "ElevenLabs"; }
-    @Override public void shutdown() { }
+    @Override public void shutdown() { httpThreads.shutdown(); }
 }
@@ -4,34 +4,113 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Caches ElevenLabs voice metadata and provides deterministic selection per tag.
+ * The catalog is published as an immutable {@link Snapshot} through a volatile reference; readers never lock,
+ * and a refresh builds a complete new snapshot (indexes and tag pools included) before swapping it in.
+ * Lookups serve whatever snapshot is current and only schedule a background revalidation when it is stale;
+ * {@link #ensureLoaded()} is the one blocking entry point, meant for UI/background callers.
  */
 public class ElevenLabsVoiceCatalog {
     private static final ObjectMapper M = new ObjectMapper();
     private static final long REFRESH_INTERVAL_MS = 6 * 60 * 60 * 1000L; // 6h
+    private static final long FAILURE_BACKOFF_MS = 5 * 60 * 1000L; // don't hammer the API while it is failing
+    private static final int MAX_POOL_SIZE = 500;
+    private static final String[] GENDER_TAGS = {"male", "female", "kid"};
     private final Path cacheFile;
+    private final Path metaFile; // ETag / Last-Modified / validation time of cacheFile
     private final String apiKey;
     private final String modelId;
 
-    private long loadedAt;
-    private final List<Voice> all = new ArrayList<>();
-    private final Map<String,List<Voice>> tagIndex = new HashMap<>();
+    private final Object refreshLock = new Object();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile long validatedAt;      // last time the server confirmed (200 or 304) our copy
+    private volatile long nextAttemptAt;    // background refresh backoff after a failure
+    private volatile String etag;
+    private volatile String lastModified;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    // Shared by all catalog instances; daemon so it never holds the client open
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "osrs-tts-catalog-refresh");
+        t.setDaemon(true);
+        return t;
+    });
 
     public static class Voice {
         public final String name;
         public final String id;
         public final String category;
-        public Voice(String name, String id, String category) { this.name=name; this.id=id; this.category=category; }
-        @Override public String toString() { return name + " (" + id + ")"; }
+        private final String formatted;
+        public Voice(String name, String id, String category) { this.name=name; this.id=id; this.category=category; this.formatted = name + " (" + id + ")"; }
+        @Override public String toString() { return formatted; }
+    }
+
+    /**
+     * One immutable view of the catalog. Per-tag pools for every indexed tag are built with the snapshot;
+     * pools for tags the catalog does not know are derived on first use and memoized for the snapshot's lifetime.
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new Voice[0], Collections.emptyMap());
+
+        private final Voice[] all;
+        private final Map<String, Voice[]> tagIndex;
+        private final List<String> formattedSorted;
+        private final Map<String, String[]> tagPools = new ConcurrentHashMap<>();
+
+        private Snapshot(Voice[] all, Map<String, Voice[]> tagIndex) {
+            this.all = all;
+            this.tagIndex = tagIndex;
+            List<String> formatted = new ArrayList<>(all.length);
+            for (Voice v : all) formatted.add(v.toString()); // "Name (voice_id)" format
+            this.formattedSorted = Collections.unmodifiableList(formatted.stream().distinct().sorted(String.CASE_INSENSITIVE_ORDER).collect(java.util.stream.Collectors.toList()));
+            for (String tag : tagIndex.keySet()) tagPools.put(tag, buildPool(tag));
+        }
+
+        public boolean isEmpty() { return all.length == 0; }
+
+        /** Shuffled, de-duplicated pool of "Name (id)" strings for the tag; never null, do not modify. */
+        public String[] poolForTag(String tag) {
+            if (tag == null) return new String[0];
+            String key = tag.toLowerCase(Locale.ROOT);
+            String[] pool = tagPools.get(key);
+            return pool != null ? pool : tagPools.computeIfAbsent(key, this::buildPool);
+        }
+
+        private String pick(String tag, String seedMaterial) {
+            Voice[] pool = tagIndex.get(tag);
+            if (pool == null || pool.length == 0) return null;
+            return pool[Math.abs(hash(seedMaterial)) % pool.length].toString();
+        }
+
+        // Tag voices plus one seeded pick per gender, de-duplicated and shuffled with a per-tag stable seed
+        private String[] buildPool(String tag) {
+            LinkedHashSet<String> pool = new LinkedHashSet<>();
+            Voice[] tagged = tagIndex.get(tag);
+            if (tagged != null) for (Voice v : tagged) pool.add(v.toString());
+            for (String g : GENDER_TAGS) {
+                String gPick = pick(g, tag + ":" + g + "|g:" + g);
+                if (gPick != null) pool.add(gPick);
+            }
+            String[] arr = pool.toArray(new String[0]);
+            Random r = new Random(tag.hashCode());
+            for (int i = arr.length - 1; i > 0; i--) { int j = r.nextInt(i + 1); String tmp = arr[i]; arr[i] = arr[j]; arr[j] = tmp; }
+            return arr.length > MAX_POOL_SIZE ? Arrays.copyOf(arr, MAX_POOL_SIZE) : arr;
+        }
     }
 
     public ElevenLabsVoiceCatalog(String apiKey, String modelId) {
@@ -40,70 +119,103 @@ public class ElevenLabsVoiceCatalog {
         Path dir = Paths.get("config", "osrs-tts");
         try { Files.createDirectories(dir); } catch (IOException ignored) {}
         this.cacheFile = dir.resolve("eleven-voices-cache.json");
+        this.metaFile = dir.resolve("eleven-voices-cache.meta");
         loadCacheFile();
     }
 
-    public synchronized void ensureLoaded() {
-        long now = System.currentTimeMillis();
-        if (now - loadedAt < REFRESH_INTERVAL_MS && !all.isEmpty()) return;
+    /** Current snapshot without triggering a refresh. */
+    public Snapshot snapshot() { return snapshot; }
+
+    /** Blocking: revalidates the catalog now if it is stale. Do not call from the selection/client thread. */
+    public void ensureLoaded() {
+        if (!isStale()) return;
+        refreshNow();
+    }
+
+    /** Non-blocking: if the catalog is stale, queue one background revalidation and return immediately. */
+    public void refreshIfStale() {
+        if (!isStale() || System.currentTimeMillis() < nextAttemptAt) return;
         if (apiKey == null || apiKey.isBlank()) return; // cannot refresh
+        if (!refreshQueued.compareAndSet(false, true)) return; // one in flight is enough
         try {
-            ElevenLabsTtsClient tmp = new ElevenLabsTtsClient(apiKey, modelId, "wav");
-            String json = tmp.listVoicesSample();
-            if (json != null && !json.startsWith("Voices list failed")) {
-                parseAndIndex(json);
-                saveCacheFile(json);
+            REFRESHER.execute(() -> {
+                try { refreshNow(); } finally { refreshQueued.set(false); }
+            });
+        } catch (Exception e) {
+            refreshQueued.set(false);
+        }
+    }
+
+    private boolean isStale() {
+        return snapshot.isEmpty() || System.currentTimeMillis() - validatedAt >= REFRESH_INTERVAL_MS;
+    }
+
+    private void refreshNow() {
+        if (apiKey == null || apiKey.isBlank()) return; // cannot refresh
+        synchronized (refreshLock) {
+            if (!isStale()) return; // another thread refreshed while we waited
+            try {
+                ElevenLabsTtsClient tmp = new ElevenLabsTtsClient(apiKey, modelId, "wav");
+                // Only send validators when we actually hold the body they describe
+                boolean haveBody = !snapshot.isEmpty();
+                HttpResponse<String> resp = tmp.listVoicesConditional(haveBody ? etag : null, haveBody ? lastModified : null);
+                int code = resp.statusCode();
+                if (code == 304 && haveBody) {
+                    validatedAt = System.currentTimeMillis();
+                } else if (code / 100 == 2 && resp.body() != null) {
+                    snapshot = parseAndIndex(resp.body());
+                    saveCacheFile(resp.body());
+                    etag = resp.headers().firstValue("ETag").orElse(null);
+                    lastModified = resp.headers().firstValue("Last-Modified").orElse(null);
+                    validatedAt = System.currentTimeMillis();
+                } else {
+                    nextAttemptAt = System.currentTimeMillis() + FAILURE_BACKOFF_MS;
+                    return;
+                }
+                saveMetaFile();
+            } catch (Exception e) {
+                nextAttemptAt = System.currentTimeMillis() + FAILURE_BACKOFF_MS;
             }
-        } catch (Exception ignored) {}
+        }
     }
 
-    public synchronized String deterministicForTag(String tag, String seedKey) {
+    public String deterministicForTag(String tag, String seedKey) {
         if (tag == null) return null;
-        ensureLoaded();
-        List<Voice> pool = tagIndex.get(tag.toLowerCase(Locale.ROOT));
-        if (pool == null || pool.isEmpty()) return null;
-        int idx = Math.abs(hash(seedKey + "|" + tag)) % pool.size();
-        return pool.get(idx).toString();
+        refreshIfStale();
+        return snapshot.pick(tag.toLowerCase(Locale.ROOT), seedKey + "|" + tag);
     }
 
-    public synchronized int poolSize(String tag) {
-        ensureLoaded();
-        List<Voice> pool = tagIndex.get(tag.toLowerCase(Locale.ROOT));
-        return pool == null ? 0 : pool.size();
+    public int poolSize(String tag) {
+        refreshIfStale();
+        Voice[] pool = snapshot.tagIndex.get(tag.toLowerCase(Locale.ROOT));
+        return pool == null ? 0 : pool.length;
     }
 
-    public synchronized Set<String> availableTags() {
-        ensureLoaded();
-        return new HashSet<>(tagIndex.keySet());
+    public Set<String> availableTags() {
+        refreshIfStale();
+        return new HashSet<>(snapshot.tagIndex.keySet());
     }
 
-    public synchronized List<String> getAllVoicesFormatted() {
-        ensureLoaded();
-        List<String> result = new ArrayList<>();
-        for (Voice v : all) {
-            result.add(v.toString()); // "Name (voice_id)" format
-        }
-        return result.stream().distinct().sorted(String.CASE_INSENSITIVE_ORDER).collect(java.util.stream.Collectors.toList());
+    public List<String> getAllVoicesFormatted() {
+        refreshIfStale();
+        return snapshot.formattedSorted;
     }
 
-    public synchronized int getTotalVoiceCount() {
-        ensureLoaded();
-        return all.size();
+    public int getTotalVoiceCount() {
+        refreshIfStale();
+        return snapshot.all.length;
     }
 
-    public synchronized String anyVoiceIdLikeGender(String gender, String seedKey) {
+    public String anyVoiceIdLikeGender(String gender, String seedKey) {
         if (gender == null) return null;
-        ensureLoaded();
-        List<Voice> pool = tagIndex.get(gender.toLowerCase(Locale.ROOT));
-        if (pool == null || pool.isEmpty()) return null;
-        int idx = Math.abs(hash(seedKey + "|g:" + gender)) % pool.size();
-        return pool.get(idx).toString();
+        refreshIfStale();
+        return snapshot.pick(gender.toLowerCase(Locale.ROOT), seedKey + "|g:" + gender);
     }
 
-    private void parseAndIndex(String json) throws IOException {
+    private static Snapshot parseAndIndex(String json) throws IOException {
         JsonNode root = M.readTree(json).path("voices");
-        all.clear();
-        tagIndex.clear();
+        List<Voice> all = new ArrayList<>();
+        Map<String, List<Voice>> tagIndex = new HashMap<>();
         if (root.isArray()) {
             for (JsonNode v : root) {
                 String name = v.path("name").asText("");
@@ -114,47 +226,73 @@ public class ElevenLabsVoiceCatalog {
                 all.add(voice);
                 // heuristic gender guess
                 String lower = name.toLowerCase(Locale.ROOT);
-                if (looksFemaleName(lower)) addTag("female", voice);
-                else addTag("male", voice);
-                if (looksKidName(lower)) addTag("kid", voice);
+                if (looksFemaleName(lower)) addTag(tagIndex, "female", voice);
+                else addTag(tagIndex, "male", voice);
+                if (looksKidName(lower)) addTag(tagIndex, "kid", voice);
                 // tone tags (heuristic by category or name hints)
-                if (category.toLowerCase(Locale.ROOT).contains("narration")) addTag("narrator", voice);
-                if (lower.contains("pirate")) addTag("pirate", voice);
-                if (lower.contains("wizard") || lower.contains("mage") || lower.contains("arcane")) addTag("wizard", voice);
-                if (lower.contains("goblin")) addTag("goblin", voice);
-                if (lower.contains("dwarf")) addTag("dwarf", voice);
-                if (lower.contains("elf")) addTag("elf", voice);
+                if (category.toLowerCase(Locale.ROOT).contains("narration")) addTag(tagIndex, "narrator", voice);
+                if (lower.contains("pirate")) addTag(tagIndex, "pirate", voice);
+                if (lower.contains("wizard") || lower.contains("mage") || lower.contains("arcane")) addTag(tagIndex, "wizard", voice);
+                if (lower.contains("goblin")) addTag(tagIndex, "goblin", voice);
+                if (lower.contains("dwarf")) addTag(tagIndex, "dwarf", voice);
+                if (lower.contains("elf")) addTag(tagIndex, "elf", voice);
             }
         }
-        loadedAt = System.currentTimeMillis();
         // If some core tags missing, seed with curated voices
-        seedIfEmpty("wizard", new Voice("Antoni","ErXwobaYiN019PkySvjV",""));
-        seedIfEmpty("pirate", new Voice("Arnold","VR6AewLTigWG4xSOukaG",""));
-        seedIfEmpty("goblin", new Voice("Sam","yoZ06aMxZJJ28mfd3POQ",""));
-        seedIfEmpty("elf", new Voice("Elli","MF3mGyEYCl7XYWbV9V6O",""));
-        seedIfEmpty("female", new Voice("Rachel","21m00Tcm4TlvDq8ikWAM",""));
-        seedIfEmpty("male", new Voice("Adam","pNInz6obpgDQGcFmaJgB",""));
-        seedIfEmpty("kid", new Voice("Bella","EXAVITQu4vr4xnSDxMaL",""));
+        seedIfEmpty(tagIndex, "wizard", new Voice("Antoni","ErXwobaYiN019PkySvjV",""));
+        seedIfEmpty(tagIndex, "pirate", new Voice("Arnold","VR6AewLTigWG4xSOukaG",""));
+        seedIfEmpty(tagIndex, "goblin", new Voice("Sam","yoZ06aMxZJJ28mfd3POQ",""));
+        seedIfEmpty(tagIndex, "elf", new Voice("Elli","MF3mGyEYCl7XYWbV9V6O",""));
+        seedIfEmpty(tagIndex, "female", new Voice("Rachel","21m00Tcm4TlvDq8ikWAM",""));
+        seedIfEmpty(tagIndex, "male", new Voice("Adam","pNInz6obpgDQGcFmaJgB",""));
+        seedIfEmpty(tagIndex, "kid", new Voice("Bella","EXAVITQu4vr4xnSDxMaL",""));
+
+        Map<String, Voice[]> frozen = new HashMap<>();
+        tagIndex.forEach((tag, voices) -> frozen.put(tag, voices.toArray(new Voice[0])));
+        return new Snapshot(all.toArray(new Voice[0]), Collections.unmodifiableMap(frozen));
     }
 
-    private void addTag(String tag, Voice v) {
+    private static void addTag(Map<String, List<Voice>> tagIndex, String tag, Voice v) {
         tagIndex.computeIfAbsent(tag, k -> new ArrayList<>()).add(v);
     }
 
-    private void seedIfEmpty(String tag, Voice v) {
-        tagIndex.computeIfAbsent(tag, k -> new ArrayList<>());
-        if (tagIndex.get(tag).isEmpty()) tagIndex.get(tag).add(v);
+    private static void seedIfEmpty(Map<String, List<Voice>> tagIndex, String tag, Voice v) {
+        List<Voice> list = tagIndex.computeIfAbsent(tag, k -> new ArrayList<>());
+        if (list.isEmpty()) list.add(v);
     }
 
     private void loadCacheFile() {
         try {
             if (Files.exists(cacheFile)) {
                 String json = Files.readString(cacheFile, StandardCharsets.UTF_8);
-                parseAndIndex(json);
+                snapshot = parseAndIndex(json);
+                validatedAt = Files.getLastModifiedTime(cacheFile).toMillis();
+                loadMetaFile();
             }
         } catch (Exception ignored) {}
     }
 
+    private void loadMetaFile() {
+        if (!Files.exists(metaFile)) return;
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+            p.load(r);
+            etag = p.getProperty("etag");
+            lastModified = p.getProperty("lastModified");
+            validatedAt = Long.parseLong(p.getProperty("validatedAt", String.valueOf(validatedAt)));
+        } catch (Exception ignored) {}
+    }
+
+    private void saveMetaFile() {
+        Properties p = new Properties();
+        if (etag != null) p.setProperty("etag", etag);
+        if (lastModified != null) p.setProperty("lastModified", lastModified);
+        p.setProperty("validatedAt", String.valueOf(validatedAt));
+        try (Writer w = Files.newBufferedWriter(metaFile, StandardCharsets.UTF_8)) {
+            p.store(w, "ElevenLabs voices cache validators");
+        } catch (Exception ignored) {}
+    }
+
     private void saveCacheFile(String json) {
         try { Files.writeString(cacheFile, json, StandardCharsets.UTF_8); } catch (Exception ignored) {}
     }
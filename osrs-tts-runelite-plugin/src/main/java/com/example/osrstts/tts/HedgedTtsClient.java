@@ -0,0 +1,243 @@
+package com.example.osrstts.tts;
+
+import com.example.osrstts.OsrsTtsConfig;
+import com.example.osrstts.voice.VoiceSelection;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Wraps the active provider with a circuit breaker and, when a second provider is configured, hedging:
+ * if the primary hasn't answered by its recent p95 latency (or fails, or its breaker is open) the same line
+ * goes to the secondary with an equivalent voice, and whichever audio arrives first wins.
+ */
+public class HedgedTtsClient implements TtsClient {
+    private static final int LATENCY_SAMPLES = 64;
+    private static final int MIN_SAMPLES = 8;
+    private static final long DEFAULT_HEDGE_MS = 2500L;
+    // Fixed hedge delay; unset (0) means adaptive: p95 of recent primary latencies within the bounds below
+    private static final long FIXED_HEDGE_MS = Long.getLong("osrs.tts.hedgeDelayMs", 0L);
+    private static final long MIN_HEDGE_MS = Long.getLong("osrs.tts.hedgeMinMs", 800L);
+    private static final long MAX_HEDGE_MS = Long.getLong("osrs.tts.hedgeMaxMs", 6000L);
+    private static final Pattern STATUS = Pattern.compile("error (\\d{3})");
+
+    private final TtsClient primary;
+    private final TtsClient secondary; // null: breaker only
+    private final CircuitBreaker primaryBreaker;
+    private final CircuitBreaker secondaryBreaker;
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+    private int latencyNext;
+
+    // Audio that came from the secondary: played, but not cached under the primary voice's key
+    private final Set<byte[]> fromSecondary = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private long hedged;
+    private long hedgeWins;
+    private long failovers;
+    private long failFast;
+
+    public HedgedTtsClient(TtsClient primary, TtsClient secondary) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.primaryBreaker = CircuitBreaker.fromSystemProperties(primary.getProviderName());
+        this.secondaryBreaker = secondary != null ? CircuitBreaker.fromSystemProperties(secondary.getProviderName()) : null;
+    }
+
+    /** Each leg gets its own child of {@code token}; the leg that loses is cancelled as soon as the other wins. */
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(String text, VoiceSelection sel, CancellationToken token) {
+        if (token.isCancelled()) return CompletableFuture.failedFuture(new CancellationException("skipped before request"));
+        long start = System.currentTimeMillis();
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicBoolean secondaryStarted = new AtomicBoolean();
+        CancellationToken primaryToken = token.child();
+        CancellationToken secondaryToken = token.child();
+        result.whenComplete((audio, ex) -> {
+            primaryToken.cancel();
+            secondaryToken.cancel();
+        });
+        boolean primaryAllowed = primaryBreaker.allowRequest(start);
+        BooleanSupplier startSecondary = () -> {
+            if (secondary == null || result.isDone() || !secondaryStarted.compareAndSet(false, true)) return false;
+            if (!secondaryBreaker.allowRequest(System.currentTimeMillis())) return false;
+            outstanding.incrementAndGet();
+            call(secondary, secondaryBreaker, text, equivalentVoice(sel, secondary.getProviderName()), secondaryToken)
+                    .whenComplete((audio, ex) -> settle(result, outstanding, audio, ex, true, primaryAllowed ? start : -1L));
+            return true;
+        };
+
+        if (!primaryAllowed) {
+            synchronized (this) { failFast++; }
+            outstanding.set(0);
+            if (!startSecondary.getAsBoolean()) {
+                result.completeExceptionally(new RuntimeException(primary.getProviderName() + " circuit open; line skipped"));
+            }
+            return result;
+        }
+
+        call(primary, primaryBreaker, text, sel, primaryToken).whenComplete((audio, ex) -> {
+            if (ex != null && !result.isDone() && !token.isCancelled() && secondary != null && !secondaryStarted.get()) {
+                synchronized (this) { failovers++; }
+                startSecondary.getAsBoolean();
+            }
+            settle(result, outstanding, audio, ex, false, start);
+        });
+        if (secondary != null) {
+            CompletableFuture.delayedExecutor(hedgeDelayMs(), TimeUnit.MILLISECONDS).execute(() -> {
+                if (result.isDone() || secondaryStarted.get()) return;
+                if (startSecondary.getAsBoolean()) {
+                    synchronized (this) { hedged++; }
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * First audio wins; an error only surfaces once nothing else is outstanding (the primary's error is preferred).
+     * The winner's latency feeds the hedge delay: recording the primary's own slow calls would push its p95 up
+     * until slow lines stop being hedged at all.
+     */
+    private void settle(CompletableFuture<byte[]> result, AtomicInteger outstanding, byte[] audio, Throwable ex, boolean isSecondary, long startMs) {
+        int left = outstanding.decrementAndGet();
+        if (ex == null && audio != null) {
+            if (isSecondary) fromSecondary.add(audio);
+            if (result.complete(audio)) {
+                if (startMs >= 0) recordLatency(System.currentTimeMillis() - startMs);
+                if (isSecondary) {
+                    synchronized (this) { hedgeWins++; }
+                }
+            }
+            return;
+        }
+        if (left <= 0 && !result.isDone()) {
+            if (ex != null) result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            else result.complete(null);
+        }
+    }
+
+    private static CompletableFuture<byte[]> call(TtsClient client, CircuitBreaker breaker, String text, VoiceSelection sel, CancellationToken token) {
+        long t0 = System.currentTimeMillis();
+        CompletableFuture<byte[]> f;
+        try {
+            f = client.synthesizeAsync(text, sel, token);
+        } catch (RuntimeException e) {
+            f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+        }
+        return f.whenComplete((audio, ex) -> {
+            long now = System.currentTimeMillis();
+            if (token.isCancelled()) { // we dropped it (lost the race, line skipped): not the provider's fault
+                breaker.cancelled();
+                return;
+            }
+            // A rejected request (bad voice, text) says nothing about the provider's health
+            breaker.record(ex == null ? audio != null : isRequestError(ex), now - t0, now);
+        });
+    }
+
+    private static boolean isRequestError(Throwable ex) {
+        Matcher m = STATUS.matcher(String.valueOf(ex.getMessage()));
+        if (!m.find()) return false;
+        int code = Integer.parseInt(m.group(1));
+        return code == 400 || code == 404 || code == 422;
+    }
+
+    private synchronized void recordLatency(long ms) {
+        latencies[latencyNext] = ms;
+        latencyNext = (latencyNext + 1) % LATENCY_SAMPLES;
+        if (latencyCount < LATENCY_SAMPLES) latencyCount++;
+    }
+
+    /** How long the primary gets before the line is also sent to the secondary. */
+    synchronized long hedgeDelayMs() {
+        if (FIXED_HEDGE_MS > 0) return FIXED_HEDGE_MS;
+        if (latencyCount < MIN_SAMPLES) return DEFAULT_HEDGE_MS;
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        long p95 = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.95) - 1)];
+        return Math.max(MIN_HEDGE_MS, Math.min(MAX_HEDGE_MS, p95));
+    }
+
+    /** False for audio produced by the secondary provider, which doesn't match the requested voice. */
+    public boolean isCacheable(byte[] audio) {
+        return audio == null || !fromSecondary.contains(audio);
+    }
+
+    /**
+     * Closest stand-in on another provider for the selected voice: same gender where the name gives it
+     * away, British English where the provider has it.
+     */
+    static VoiceSelection equivalentVoice(VoiceSelection sel, String provider) {
+        boolean female = sel != null && looksFemale(sel.voiceName);
+        String style = sel == null ? null : sel.style;
+        if ("Azure".equalsIgnoreCase(provider)) return VoiceSelection.of(female ? "en-GB-SoniaNeural" : "en-GB-RyanNeural", style);
+        if ("ElevenLabs".equalsIgnoreCase(provider)) return VoiceSelection.of(female ? "Rachel (21m00Tcm4TlvDq8ikWAM)" : "Adam (pNInz6obpgDQGcFmaJgB)", style);
+        if ("Piper".equalsIgnoreCase(provider)) return VoiceSelection.of(null, style); // the model's own voice
+        return VoiceSelection.of(female ? "Amy" : "Brian", style);
+    }
+
+    private static final String[] FEMALE_NAMES = {
+            "rachel", "bella", "dorothy", "domi", "elli", "grace", "charlotte", "matilda", "emily", "freya", "glinda", "mimi", "serena", "nicole",
+            "jenny", "aria", "sonia", "libby", "maisie", "hollie", "abbi", "olivia", "natasha", "clara", "emma", "ava", "sara", "nancy", "michelle",
+            "amy", "joanna", "salli", "kimberly", "kendra", "ivy", "ruth", "danielle"
+    };
+
+    private static boolean looksFemale(String voiceName) {
+        if (voiceName == null) return false;
+        String v = voiceName.toLowerCase(Locale.ROOT);
+        for (String n : FEMALE_NAMES) if (v.contains(n)) return true;
+        return false;
+    }
+
+    @Override
+    public byte[] synthesize(String text, VoiceSelection selection) throws Exception {
+        return TtsClient.await(synthesizeAsync(text, selection, CancellationToken.NONE));
+    }
+
+    @Override
+    public void warmUp() throws Exception {
+        primary.warmUp();
+        if (secondary != null) secondary.warmUp(); // a hedge shouldn't pay the handshake either
+    }
+
+    @Override
+    public void keepAlive() throws Exception {
+        primary.keepAlive();
+        if (secondary != null) secondary.keepAlive();
+    }
+
+    public synchronized String getStats() {
+        return primaryBreaker.getStats() + (secondaryBreaker != null ? " " + secondaryBreaker.getStats() : "")
+                + " hedgeDelayMs=" + hedgeDelayMs() + " hedged=" + hedged + " hedgeWins=" + hedgeWins
+                + " failovers=" + failovers + " failFast=" + failFast;
+    }
+
+    @Override public boolean isConfigured(OsrsTtsConfig config) { return primary.isConfigured(config); }
+    @Override public boolean testConnection(OsrsTtsConfig config) { return primary.testConnection(config); }
+    @Override public String getProviderName() { return primary.getProviderName(); }
+
+    @Override
+    public void shutdown() {
+        try {
+            primary.shutdown();
+        } finally {
+            if (secondary != null) secondary.shutdown();
+        }
+    }
+}
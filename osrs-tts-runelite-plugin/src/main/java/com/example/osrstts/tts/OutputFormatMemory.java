@@ -0,0 +1,104 @@
+package com.example.osrstts.tts;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Output format a provider accepted, per model and account, persisted so format negotiation happens once
+ * per account rather than once per line. Accounts are keyed by a digest of the API key (the key itself is
+ * never written). The account's tier is stored alongside: when it changes, the entry is dropped and the
+ * format is negotiated again, since tiers unlock or withdraw formats.
+ */
+final class OutputFormatMemory {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    public static final class Entry {
+        public String format;
+        public String tier;
+    }
+
+    private final Path file;
+    private Map<String, Entry> entries;
+
+    OutputFormatMemory(Path file) {
+        this.file = file;
+    }
+
+    synchronized String get(String model, String account) {
+        Entry e = entries().get(model + "|" + account);
+        return e == null ? null : e.format;
+    }
+
+    synchronized void remember(String model, String account, String format, String tier) {
+        Entry e = entries().get(model + "|" + account);
+        if (e != null && format.equals(e.format) && (tier == null || tier.equals(e.tier))) return;
+        Entry n = new Entry();
+        n.format = format;
+        n.tier = tier != null ? tier : (e != null ? e.tier : null);
+        entries().put(model + "|" + account, n);
+        save();
+    }
+
+    synchronized void forget(String model, String account) {
+        if (entries().remove(model + "|" + account) != null) save();
+    }
+
+    /** Record the account's current tier; formats learned under a different tier are forgotten. */
+    synchronized void noteTier(String account, String tier) {
+        if (tier == null) return;
+        boolean changed = false;
+        for (Map.Entry<String, Entry> me : entries().entrySet()) {
+            if (!me.getKey().endsWith("|" + account)) continue;
+            Entry e = me.getValue();
+            if (e.tier == null) {
+                e.tier = tier;
+                changed = true;
+            } else if (!e.tier.equals(tier)) {
+                e.format = null;
+                changed = true;
+            }
+        }
+        if (changed) {
+            entries().values().removeIf(e -> e.format == null);
+            save();
+        }
+    }
+
+    static String accountOf(String apiKey) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest((apiKey == null ? "" : apiKey.trim()).getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 6; i++) sb.append(String.format("%02x", d[i]));
+            return sb.toString();
+        } catch (Exception e) {
+            return "default";
+        }
+    }
+
+    private Map<String, Entry> entries() {
+        if (entries == null) {
+            entries = new HashMap<>();
+            try {
+                if (Files.exists(file)) {
+                    Map<String, Entry> m = M.readValue(Files.readString(file, StandardCharsets.UTF_8), new TypeReference<Map<String, Entry>>(){});
+                    if (m != null) entries.putAll(m);
+                }
+            } catch (Exception ignored) {}
+        }
+        return entries;
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, M.writerWithDefaultPrettyPrinter().writeValueAsString(entries), StandardCharsets.UTF_8);
+        } catch (Exception ignored) {}
+    }
+}
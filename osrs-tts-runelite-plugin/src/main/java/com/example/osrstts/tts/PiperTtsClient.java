@@ -0,0 +1,254 @@
+package com.example.osrstts.tts;
+
+import com.example.osrstts.OsrsTtsConfig;
+import com.example.osrstts.voice.VoiceSelection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline synthesis with a locally installed Piper engine. A small pool of Piper processes is started once
+ * and kept running with the model loaded; each line goes to an idle worker's stdin as one JSON line, and
+ * Piper answers on stdout with the path of the WAV it wrote, which is read and deleted. A worker that dies
+ * is restarted (and the line retried once); one that hangs past osrs.tts.piper.timeoutMs is killed.
+ * The voice name, when numeric, is the speaker id of a multi-speaker model.
+ */
+public class PiperTtsClient implements TtsClient {
+    private static final int WORKERS = Math.max(1, Integer.getInteger("osrs.tts.piper.workers", 2));
+    private static final long TIMEOUT_MS = Long.getLong("osrs.tts.piper.timeoutMs", 15_000L);
+    private static final int MAX_CHARS = 3000;
+
+    private final String command;
+    private final String model;
+    private final List<Worker> workers = new ArrayList<>();
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final BoundedBlockingExecutor calls;
+    private final ScheduledExecutorService watchdog;
+    private volatile Path outDir;
+    private volatile boolean shutdown;
+
+    private final AtomicLong lines = new AtomicLong();
+    private final AtomicLong starts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param command the Piper executable, optionally with leading arguments (e.g. "python3 -m piper")
+     * @param model   path of the .onnx voice model; its .onnx.json must sit next to it
+     */
+    public PiperTtsClient(String command, String model) {
+        this.command = command == null || command.isBlank() ? "piper" : command.trim();
+        this.model = model == null ? "" : model.trim();
+        for (int i = 0; i < WORKERS; i++) {
+            Worker w = new Worker();
+            workers.add(w);
+            idle.add(w);
+        }
+        this.calls = new BoundedBlockingExecutor("osrs-tts-piper", WORKERS);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "osrs-tts-piper-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public byte[] synthesize(String text, VoiceSelection selection) throws Exception {
+        if (shutdown) throw new IllegalStateException("Piper client is shut down");
+        if (text.length() > MAX_CHARS) {
+            throw new IllegalArgumentException("Text too long for Piper (max " + MAX_CHARS + " chars per line).");
+        }
+        String request = requestJson(text, selection);
+        Worker w = idle.take();
+        try {
+            try {
+                return w.synthesize(request);
+            } catch (IOException crashed) {
+                // A hung line is not retried: it would most likely hang the fresh process too
+                if (w.timedOut || shutdown) throw crashed;
+                w.stop();
+                return w.synthesize(request);
+            }
+        } finally {
+            idle.add(w);
+        }
+    }
+
+    /** At most one call per worker holds a thread; a line cancelled while queued never reaches a worker. */
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(String text, VoiceSelection selection, CancellationToken token) {
+        if (token.isCancelled()) return CompletableFuture.failedFuture(new CancellationException("skipped before synthesis"));
+        return calls.submit(() -> synthesize(text, selection), token);
+    }
+
+    /** Start every worker and run a short line through each, so the model is loaded before the first real line. */
+    @Override
+    public void warmUp() throws Exception {
+        List<CompletableFuture<byte[]>> warm = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) warm.add(synthesizeAsync("Ready.", null));
+        CompletableFuture.allOf(warm.toArray(new CompletableFuture[0])).get(TIMEOUT_MS * 2, TimeUnit.MILLISECONDS);
+    }
+
+    /** Health check: restart any idle worker whose process has exited or was stopped. No network involved. */
+    @Override
+    public void keepAlive() throws Exception {
+        for (Worker w : workers) {
+            if (!idle.remove(w)) continue; // busy, so alive
+            try {
+                if (!w.alive()) w.start();
+            } finally {
+                idle.add(w);
+            }
+        }
+    }
+
+    public String getStats() {
+        int alive = 0;
+        for (Worker w : workers) if (w.alive()) alive++;
+        return "piperWorkers=" + workers.size() + " alive=" + alive + " lines=" + lines.get()
+                + " starts=" + starts.get() + " timeouts=" + timeouts.get() + " " + calls.getStats();
+    }
+
+    @Override
+    public boolean isConfigured(OsrsTtsConfig config) {
+        return !model.isEmpty() && Files.isRegularFile(Paths.get(model));
+    }
+
+    @Override
+    public boolean testConnection(OsrsTtsConfig config) {
+        try {
+            byte[] wav = synthesize("Test.", null);
+            return wav != null && wav.length > 44;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override public String getProviderName() { return "Piper"; }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        calls.shutdown();
+        watchdog.shutdownNow();
+        for (Worker w : workers) w.stop();
+        Path dir = outDir;
+        if (dir != null) {
+            File[] left = dir.toFile().listFiles();
+            if (left != null) for (File f : left) f.delete();
+            dir.toFile().delete();
+        }
+    }
+
+    private synchronized Path outDir() throws IOException {
+        if (outDir == null) outDir = Files.createTempDirectory("osrs-tts-piper");
+        return outDir;
+    }
+
+    private static String requestJson(String text, VoiceSelection sel) {
+        StringBuilder sb = new StringBuilder(text.length() + 32).append("{\"text\":\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(' '); // newlines would end the request early
+            else sb.append(c);
+        }
+        sb.append('"');
+        String voice = sel == null || sel.voiceName == null ? "" : sel.voiceName.trim();
+        if (voice.matches("\\d{1,4}")) sb.append(",\"speaker_id\":").append(voice);
+        return sb.append('}').toString();
+    }
+
+    /** One Piper process. Only used by the thread that took it from the idle queue. */
+    private final class Worker {
+        private volatile Process process;
+        private BufferedWriter stdin;
+        private BufferedReader stdout;
+        private volatile String lastLog;
+        volatile boolean timedOut;
+
+        boolean alive() { Process p = process; return p != null && p.isAlive(); }
+
+        void start() throws IOException {
+            stop();
+            List<String> cmd = new ArrayList<>(Arrays.asList(command.split("\\s+")));
+            cmd.addAll(Arrays.asList("--model", model, "--json-input", "--output_dir", outDir().toString()));
+            Process p = new ProcessBuilder(cmd).start();
+            starts.incrementAndGet();
+            stdin = new BufferedWriter(new OutputStreamWriter(p.getOutputStream(), StandardCharsets.UTF_8));
+            stdout = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8));
+            // Piper logs to stderr; it has to be drained or the process blocks once the pipe fills
+            Thread drain = new Thread(() -> {
+                try (BufferedReader err = new BufferedReader(new InputStreamReader(p.getErrorStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = err.readLine()) != null) lastLog = line;
+                } catch (IOException ignored) {}
+            }, "osrs-tts-piper-stderr");
+            drain.setDaemon(true);
+            drain.start();
+            process = p;
+        }
+
+        byte[] synthesize(String request) throws IOException {
+            if (!alive()) start();
+            timedOut = false;
+            Process p = process;
+            ScheduledFuture<?> kill = watchdog.schedule(() -> {
+                timedOut = true;
+                timeouts.incrementAndGet();
+                p.destroyForcibly();
+            }, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            String path;
+            try {
+                stdin.write(request);
+                stdin.newLine();
+                stdin.flush();
+                do {
+                    path = stdout.readLine();
+                } while (path != null && !path.trim().endsWith(".wav"));
+            } finally {
+                kill.cancel(false);
+            }
+            if (path == null) {
+                stop();
+                throw new IOException("Piper " + (timedOut ? "timed out after " + TIMEOUT_MS + "ms" : "exited")
+                        + (lastLog != null ? " (last log: " + lastLog + ")" : ""));
+            }
+            Path wav = Paths.get(path.trim());
+            try {
+                byte[] audio = Files.readAllBytes(wav);
+                lines.incrementAndGet();
+                return audio;
+            } finally {
+                Files.deleteIfExists(wav);
+            }
+        }
+
+        void stop() {
+            Process p = process;
+            process = null;
+            if (p == null) return;
+            try { stdin.close(); } catch (IOException ignored) {}
+            p.destroy();
+        }
+    }
+}
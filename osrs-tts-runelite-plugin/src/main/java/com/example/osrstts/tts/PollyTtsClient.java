@@ -10,10 +10,15 @@ import com.example.osrstts.voice.WavUtil;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import com.example.osrstts.OsrsTtsConfig;
 
 public class PollyTtsClient implements TtsClient {
     private final AmazonPolly polly;
+    // The v1 SDK only blocks; at most this many calls hold a thread, queued lines wait without one
+    private final BoundedBlockingExecutor calls =
+            new BoundedBlockingExecutor("osrs-tts-polly", Integer.getInteger("osrs.tts.polly.maxConcurrent", 4));
 
     public PollyTtsClient() {
         this.polly = AmazonPollyClientBuilder.defaultClient();
@@ -42,8 +47,21 @@ public class PollyTtsClient implements TtsClient {
         }
     }
 
+    @Override
+    public CompletableFuture<byte[]> synthesizeAsync(String text, VoiceSelection selection, CancellationToken token) {
+        if (token.isCancelled()) return CompletableFuture.failedFuture(new CancellationException("skipped before synthesis"));
+        return calls.submit(() -> synthesize(text, selection), token);
+    }
+
+    public String getStats() { return calls.getStats(); }
+
     @Override public boolean isConfigured(OsrsTtsConfig config) { return true; }
     @Override public boolean testConnection(OsrsTtsConfig config) { return true; }
     @Override public String getProviderName() { return "Polly"; }
-    @Override public void shutdown() { }
+
+    @Override
+    public void shutdown() {
+        calls.shutdown();
+        polly.shutdown();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.example.osrstts.tts;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for provider work (HTTP response handling, blocking SDK calls). This is the Java 11 version:
+ * daemon platform threads, kept for a while once idle. The jar is multi-release; on Java 21+ the copy in
+ * src/main/java21 is loaded instead and starts a virtual thread per task. Keep the two APIs identical.
+ */
+public final class ProviderThreads {
+    private ProviderThreads() {}
+
+    /** Unbounded; callers that need a limit wrap it (see {@link BoundedBlockingExecutor}). */
+    public static ExecutorService newExecutor(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** "platform" or "virtual", for stats and logs. */
+    public static String kind() { return "platform"; }
+}
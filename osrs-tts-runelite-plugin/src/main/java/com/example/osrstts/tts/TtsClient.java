@@ -2,34 +2,62 @@ package com.example.osrstts.tts;
 
 import com.example.osrstts.OsrsTtsConfig;
 import com.example.osrstts.voice.VoiceSelection;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Simplified TTS client interface aligned with current runtime usage.
- * Implementations expose a synchronous synthesize; a default async wrapper is provided.
+ * The runtime calls {@link #synthesizeAsync(String, VoiceSelection, CancellationToken)}: HTTP providers implement it
+ * with non-blocking requests, blocking ones get a bounded adapter by default.
  */
 public interface TtsClient {
 
     boolean isConfigured(OsrsTtsConfig config);
 
     /**
-     * Synthesize speech for the given text and voice selection (voice + optional style).
+     * Synthesize speech for the given text and voice selection (voice + optional style), blocking until done.
+     * Async-native clients implement it with {@link #await}.
      */
     byte[] synthesize(String text, VoiceSelection selection) throws Exception;
 
-    /** Default asynchronous wrapper. */
     default CompletableFuture<byte[]> synthesizeAsync(String text, VoiceSelection selection) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return synthesize(text, selection);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        return synthesizeAsync(text, selection, CancellationToken.NONE);
+    }
+
+    /**
+     * Once {@code token} is cancelled the future fails with a CancellationException and never yields audio.
+     * This default runs the blocking {@link #synthesize} through a small {@link BoundedBlockingExecutor}, so
+     * queued lines hold no thread and the common pool is never blocked; a line cancelled while queued is
+     * never sent.
+     */
+    default CompletableFuture<byte[]> synthesizeAsync(String text, VoiceSelection selection, CancellationToken token) {
+        if (token.isCancelled()) return CompletableFuture.failedFuture(new CancellationException("skipped before synthesis"));
+        return BoundedBlockingExecutor.shared().submit(() -> synthesize(text, selection), token);
+    }
+
+    /** Wait for {@code audio}, rethrowing the provider's own exception rather than an ExecutionException. */
+    static byte[] await(CompletableFuture<byte[]> audio) throws Exception {
+        try {
+            return audio.get();
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof Exception) throw (Exception) c;
+            throw e;
+        }
     }
 
     boolean testConnection(OsrsTtsConfig config);
 
+    /**
+     * Open a connection to the provider ahead of the first request (DNS, TCP and TLS setup) with a cheap
+     * authenticated call. No-op for providers without a warmable endpoint.
+     */
+    default void warmUp() throws Exception { }
+
+    /** Touch the pooled connection so the server does not close it as idle. Defaults to {@link #warmUp()}. */
+    default void keepAlive() throws Exception { warmUp(); }
+
     String getProviderName();
 
     void shutdown();
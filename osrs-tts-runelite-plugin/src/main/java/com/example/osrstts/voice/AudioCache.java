@@ -1,5 +1,7 @@
 package com.example.osrstts.voice;
 
+import com.example.osrstts.text.TextNormalizer;
+
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -69,11 +71,7 @@ public class AudioCache {
     }
 
     public static String normalizeText(String s) {
-        if (s == null) return "";
-        String t = s.replaceAll("<[^>]*>", " "); // strip markup
-        t = t.replace('\n', ' ').replace('\r', ' ');
-        t = t.trim().replaceAll("\\s+", " ");
-        return t;
+        return TextNormalizer.collapseForSpeech(s);
     }
 
     private static String nullSafe(String s) { return s == null ? "" : s; }
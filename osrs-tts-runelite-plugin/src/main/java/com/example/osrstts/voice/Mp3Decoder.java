@@ -0,0 +1,46 @@
+package com.example.osrstts.voice;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Decodes MP3 to a 16-bit PCM WAV in memory with JLayer's decoder, so compressed audio goes through the same
+ * Clip/SourceDataLine playback (volume, stop) as WAV from the provider.
+ */
+public final class Mp3Decoder {
+    private Mp3Decoder() {}
+
+    public static byte[] toWav(byte[] mp3) throws JavaLayerException {
+        Bitstream in = new Bitstream(new ByteArrayInputStream(mp3));
+        Decoder decoder = new Decoder();
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream(mp3.length * 8);
+        int rate = 0;
+        int channels = 0;
+        try {
+            Header h;
+            while ((h = in.readFrame()) != null) {
+                SampleBuffer out = (SampleBuffer) decoder.decodeFrame(h, in);
+                if (rate == 0) {
+                    rate = out.getSampleFrequency();
+                    channels = out.getChannelCount();
+                }
+                short[] samples = out.getBuffer();
+                for (int i = 0, n = out.getBufferLength(); i < n; i++) {
+                    pcm.write(samples[i] & 0xFF);
+                    pcm.write((samples[i] >> 8) & 0xFF);
+                }
+                in.closeFrame();
+            }
+        } finally {
+            in.close();
+        }
+        if (rate == 0) throw new JavaLayerException();
+        return WavUtil.wrapPcmToWav(pcm.toByteArray(), rate, (short) 16, (short) Math.max(1, channels));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.osrstts.voice;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressed NPC composition id -> profile table. Keys are primitive ints so lookups never box or allocate.
+ * Profiles hold the voice the pipeline resolved for that id the first time it spoke, so later lines skip
+ * metadata analysis and selection entirely.
+ */
+final class NpcProfileTable {
+    private static final int EMPTY = -1;
+    private static final int MAX_ENTRIES = 16_384; // more than the NPC ids a session realistically meets
+
+    static final class Profile {
+        final int npcId;
+        final String voiceName;
+        final String explicitStyle;   // style forced by mapping ("|style=..."), null to infer per line
+
+        Profile(int npcId, String voiceName, String explicitStyle) {
+            this.npcId = npcId;
+            this.voiceName = voiceName;
+            this.explicitStyle = explicitStyle;
+        }
+    }
+
+    private int[] keys = newKeys(256);
+    private Profile[] values = new Profile[256];
+    private int size;
+
+    synchronized Profile get(int npcId) {
+        int mask = keys.length - 1;
+        for (int i = mix(npcId) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == npcId) return values[i];
+            if (k == EMPTY) return null;
+        }
+    }
+
+    synchronized void put(Profile p) {
+        if (p == null || p.npcId < 0) return;
+        if (size >= MAX_ENTRIES) clear();
+        if ((size + 1) * 2 > keys.length) grow();
+        if (insert(keys, values, p)) size++;
+    }
+
+    synchronized void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    synchronized int size() { return size; }
+
+    private void grow() {
+        int[] nk = newKeys(keys.length * 2);
+        Profile[] nv = new Profile[nk.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) insert(nk, nv, values[i]);
+        }
+        keys = nk;
+        values = nv;
+    }
+
+    /** @return true when a new slot was used, false when an existing id was replaced */
+    private static boolean insert(int[] ks, Profile[] vs, Profile p) {
+        int mask = ks.length - 1;
+        for (int i = mix(p.npcId) & mask; ; i = (i + 1) & mask) {
+            if (ks[i] == p.npcId) { vs[i] = p; return false; }
+            if (ks[i] == EMPTY) { ks[i] = p.npcId; vs[i] = p; return true; }
+        }
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] k = new int[capacity];
+        Arrays.fill(k, EMPTY);
+        return k;
+    }
+
+    // NPC ids are dense small integers; scramble so neighbouring ids don't cluster in the probe sequence
+    private static int mix(int x) {
+        x *= 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+}
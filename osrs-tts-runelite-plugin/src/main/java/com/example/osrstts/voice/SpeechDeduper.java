@@ -0,0 +1,78 @@
+package com.example.osrstts.voice;
+
+/**
+ * Recently spoken lines as 64-bit fingerprints in a fixed ring with timestamps. Every speech source goes
+ * through the same instance before synthesis, so a line that arrives twice (chat message and dialog widget,
+ * or an A-B-A repeat) is synthesized and played once per window. Thread-safe.
+ */
+public final class SpeechDeduper {
+    private final long windowMs;
+    private final long[] fingerprints;
+    private final long[] times;
+    private int next;
+
+    private long checked;
+    private long suppressed;
+
+    public SpeechDeduper(int entries, long windowMs) {
+        int n = Math.max(1, entries);
+        this.fingerprints = new long[n];
+        this.times = new long[n];
+        this.windowMs = windowMs;
+    }
+
+    /** Ring size and window overridable with osrs.tts.dedupeEntries / osrs.tts.dedupeWindowMs. */
+    public static SpeechDeduper fromSystemProperties() {
+        return new SpeechDeduper(Integer.getInteger("osrs.tts.dedupeEntries", 64), Long.getLong("osrs.tts.dedupeWindowMs", 5000L));
+    }
+
+    /**
+     * Record the line unless it was already recorded within the window.
+     * @return true when the line should be spoken, false for a duplicate (counted as suppressed)
+     */
+    public synchronized boolean firstInWindow(long fingerprint, long nowMs) {
+        checked++;
+        if (seen(fingerprint, nowMs)) {
+            suppressed++;
+            return false;
+        }
+        // Overwrite the oldest slot; the original time is kept for repeats so a line spammed
+        // every few seconds is still spoken once per window
+        fingerprints[next] = fingerprint;
+        times[next] = nowMs;
+        next = (next + 1) % fingerprints.length;
+        return true;
+    }
+
+    /** Whether the line was recorded within the window, without recording it. */
+    public synchronized boolean recentlySpoken(long fingerprint, long nowMs) {
+        return seen(fingerprint, nowMs);
+    }
+
+    public synchronized String getStats() {
+        return "dedupeChecked=" + checked + " dedupeSuppressed=" + suppressed;
+    }
+
+    /** 64-bit FNV-1a over kind, a separator and the text; never 0 so empty slots cannot match. */
+    public static long fingerprint(String kind, CharSequence text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = kind.length(); i < n; i++) {
+            h ^= kind.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= '|';
+        h *= 0x100000001b3L;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == 0L ? 1L : h;
+    }
+
+    private boolean seen(long fingerprint, long nowMs) {
+        for (int i = 0; i < fingerprints.length; i++) {
+            if (fingerprints[i] == fingerprint && nowMs - times[i] < windowMs) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.osrstts.voice;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects NPC names that fell through every mapping and periodically rewrites
+ * {@code quest-voices/unmapped-npcs.txt} as a ranked work list: {@code name<TAB>hits<TAB>firstSeen}, most heard first.
+ * {@link #record(String)} only touches memory; all disk I/O happens on a daemon thread, or in {@link #flush()} at shutdown.
+ */
+final class UnmappedNpcLog {
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("osrs.tts.unmappedFlushMs", 30_000L);
+
+    private static final class Entry {
+        String firstSeen; // ISO-8601 instant
+        long hits;
+
+        Entry(String firstSeen, long hits) {
+            this.firstSeen = firstSeen;
+            this.hits = hits;
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+    private final Object writeLock = new Object();
+    private boolean loaded; // guarded by writeLock; no write may replace the file before its counts are read
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "osrs-tts-unmapped-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    UnmappedNpcLog(Path file) {
+        this.file = file;
+        // Seed from disk off the calling thread so restarts keep counts instead of re-appending names
+        flusher.execute(this::ensureLoaded);
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    void record(String npcName) {
+        if (npcName == null) return;
+        String name = npcName.trim();
+        if (name.isEmpty()) return;
+        Entry e = entries.computeIfAbsent(name, k -> new Entry(Instant.now().toString(), 0));
+        synchronized (e) { e.hits++; }
+        dirty = true;
+    }
+
+    // Stable copy of one entry, so sorting never sees counts that other threads are still bumping
+    private static final class Row {
+        final String name;
+        final long hits;
+        final String firstSeen;
+
+        Row(String name, long hits, String firstSeen) {
+            this.name = name;
+            this.hits = hits;
+            this.firstSeen = firstSeen;
+        }
+    }
+
+    /**
+     * Rewrite the file if anything changed since the last write. Safe to call from any thread; never throws.
+     * Reads the existing file first if the background load has not run yet.
+     */
+    void flush() {
+        if (!dirty) return;
+        synchronized (writeLock) {
+            if (!dirty || !ensureLoaded()) return; // a file that can't be read is kept rather than overwritten
+            dirty = false;
+            try {
+                List<Row> ranked = new ArrayList<>(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    Entry v = e.getValue();
+                    synchronized (v) { ranked.add(new Row(e.getKey(), v.hits, v.firstSeen)); }
+                }
+                ranked.sort((a, b) -> {
+                    int c = Long.compare(b.hits, a.hits);
+                    return c != 0 ? c : a.name.compareToIgnoreCase(b.name);
+                });
+                Path dir = file.getParent();
+                if (dir != null) Files.createDirectories(dir);
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    for (Row r : ranked) {
+                        w.write(r.name + '\t' + r.hits + '\t' + r.firstSeen);
+                        w.newLine();
+                    }
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (Exception e) {
+                // Swallowed on purpose: an exception escaping would cancel the scheduled flush for good
+                dirty = true; // retry next interval
+            }
+        }
+    }
+
+    private boolean ensureLoaded() {
+        synchronized (writeLock) {
+            if (!loaded) loaded = load();
+            return loaded;
+        }
+    }
+
+    /** @return false when the file exists but could not be read */
+    private boolean load() {
+        try {
+            if (!Files.isRegularFile(file)) return true;
+            String fallbackSeen = Files.getLastModifiedTime(file).toInstant().toString();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                // Older files hold bare names, one per line
+                String[] parts = line.split("\t");
+                String name = parts[0].trim();
+                if (name.isEmpty()) continue;
+                long hits = 1;
+                if (parts.length > 1) {
+                    try { hits = Math.max(1, Long.parseLong(parts[1].trim())); } catch (NumberFormatException ignored) {}
+                }
+                String seen = parts.length > 2 && !parts[2].isBlank() ? parts[2].trim() : fallbackSeen;
+                Entry e = entries.putIfAbsent(name, new Entry(seen, hits));
+                if (e != null) {
+                    // Recorded before the load finished: add the stored count and keep the older first-seen
+                    synchronized (e) {
+                        e.hits += hits;
+                        e.firstSeen = seen;
+                    }
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
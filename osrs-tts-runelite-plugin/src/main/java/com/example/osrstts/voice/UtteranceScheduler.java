@@ -0,0 +1,265 @@
+package com.example.osrstts.voice;
+
+import com.example.osrstts.tts.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Orders playback of synthesized lines so they never talk over each other. Every utterance carries a
+ * priority (conversation, i.e. dialogue and the player's replies, > narration > overhead), a deadline after
+ * which it is dropped unplayed, and a supersede key: a new line with the same key replaces a queued one and
+ * cuts off one that is playing. Lines play one at a time on a single thread: the highest-priority line whose
+ * audio is ready goes first, so one slow synthesis never holds up lines that are ready. Conversation lines
+ * are the exception: they play strictly in submit order, so an NPC's answer never comes before the player
+ * line it answers. Once a line that may play has its audio, a lower-priority line that is playing is stopped
+ * for it. A line dropped before its audio arrived (superseded, expired, shut down) cancels its token, which
+ * aborts the synthesis.
+ */
+final class UtteranceScheduler {
+
+    enum Priority {
+        DIALOGUE(0, 15_000L), PLAYER(0, 15_000L), NARRATION(1, 30_000L), OVERHEAD(2, 4_000L);
+
+        /** Lower plays first; lines of equal rank never cut each other off. */
+        final int rank;
+        /** Time from submit to start of playback; overridable with osrs.tts.deadlineMs.&lt;priority&gt;. */
+        final long deadlineMs;
+
+        Priority(int rank, long defaultDeadlineMs) {
+            this.rank = rank;
+            this.deadlineMs = Long.getLong("osrs.tts.deadlineMs." + name().toLowerCase(Locale.ROOT), defaultDeadlineMs);
+        }
+
+        boolean conversation() {
+            return rank == 0;
+        }
+    }
+
+    /** Plays audio to completion on the calling thread, returning early once {@code stopped} reports true. */
+    interface Sink {
+        void play(byte[] audio, BooleanSupplier stopped) throws Exception;
+    }
+
+    private static final class Utterance {
+        final Priority priority;
+        final String key;
+        final CompletableFuture<byte[]> audio;
+        final CancellationToken token;
+        final long deadlineAtMs;
+        volatile boolean stopped;
+
+        Utterance(Priority priority, String key, CompletableFuture<byte[]> audio, CancellationToken token, long deadlineAtMs) {
+            this.priority = priority;
+            this.key = key;
+            this.audio = audio;
+            this.token = token;
+            this.deadlineAtMs = deadlineAtMs;
+        }
+
+        boolean hasAudio() {
+            return audio.isDone() && !audio.isCompletedExceptionally() && audio.getNow(null) != null;
+        }
+    }
+
+    private final Sink sink;
+    private final Object lock = new Object();
+    private final List<Utterance> queue = new ArrayList<>(); // submit order
+    private Utterance playing;
+    private Thread worker;
+    private boolean shutdown;
+
+    private long submitted;
+    private long played;
+    private long superseded;
+    private long preempted;
+    private long droppedDeadline;
+    private long failed;
+    private long abortedSynth;
+    private int maxDepth;
+
+    UtteranceScheduler(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Queue audio (possibly still synthesizing) for playback.
+     * @param key supersede key, e.g. one per speaker; null never supersedes anything
+     */
+    void submit(Priority priority, String key, CompletableFuture<byte[]> audio) {
+        submit(priority, key, audio, CancellationToken.NONE);
+    }
+
+    /** @param token cancelled if the line is dropped before it plays; it should be the one its synthesis watches */
+    void submit(Priority priority, String key, CompletableFuture<byte[]> audio, CancellationToken token) {
+        Utterance u = new Utterance(priority, key, audio, token, System.currentTimeMillis() + priority.deadlineMs);
+        List<Utterance> dropped = new ArrayList<>();
+        synchronized (lock) {
+            if (shutdown) {
+                dropped.add(u);
+            } else {
+                enqueue(u, dropped);
+            }
+        }
+        abort(dropped);
+        audio.whenComplete((a, ex) -> {
+            synchronized (lock) {
+                if (!queue.contains(u)) return;
+                preemptForReady();
+                lock.notifyAll();
+            }
+        });
+    }
+
+    // Under lock: stop the playing line if a higher-priority line is allowed to play and has its audio
+    private void preemptForReady() {
+        Utterance cur = playing;
+        if (cur == null || cur.stopped) return;
+        boolean conversationAhead = false;
+        for (Utterance u : queue) {
+            boolean mayPlay = !u.priority.conversation() || !conversationAhead;
+            if (u.priority.conversation()) conversationAhead = true;
+            if (mayPlay && u.priority.rank < cur.priority.rank && u.hasAudio()) {
+                cur.stopped = true;
+                preempted++;
+                return;
+            }
+        }
+    }
+
+    // Under lock
+    private void enqueue(Utterance u, List<Utterance> dropped) {
+        submitted++;
+        String key = u.key;
+        if (key != null) {
+            for (Iterator<Utterance> it = queue.iterator(); it.hasNext(); ) {
+                Utterance q = it.next();
+                if (key.equals(q.key)) {
+                    it.remove();
+                    dropped.add(q);
+                    superseded++;
+                }
+            }
+            if (playing != null && !playing.stopped && key.equals(playing.key)) {
+                playing.stopped = true;
+                superseded++;
+            }
+        }
+        queue.add(u);
+        if (queue.size() > maxDepth) maxDepth = queue.size();
+        preemptForReady(); // a superseded line may have been holding back a ready one
+        if (worker == null) {
+            worker = new Thread(this::run, "osrs-tts-playback");
+            worker.setDaemon(true);
+            worker.start();
+        }
+        lock.notifyAll();
+    }
+
+    // Outside the lock: cancellation runs the clients' abort callbacks
+    private void abort(List<Utterance> dropped) {
+        for (Utterance u : dropped) {
+            if (u.audio.isDone()) continue;
+            if (u.token.cancel()) {
+                synchronized (lock) { abortedSynth++; }
+            }
+            u.audio.cancel(false); // never plays, whatever the client does with the cancel
+        }
+    }
+
+    /** Drop everything queued, stop the current line and end the playback thread. */
+    void shutdown() {
+        List<Utterance> dropped;
+        synchronized (lock) {
+            shutdown = true;
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            if (playing != null) playing.stopped = true;
+            lock.notifyAll();
+        }
+        abort(dropped);
+    }
+
+    String getStats() {
+        synchronized (lock) {
+            return "depth=" + queue.size() + " maxDepth=" + maxDepth + " submitted=" + submitted + " played=" + played
+                    + " superseded=" + superseded + " preempted=" + preempted + " droppedDeadline=" + droppedDeadline
+                    + " failed=" + failed + " abortedSynth=" + abortedSynth + " playing=" + (playing == null ? "-" : playing.priority.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Utterance next;
+            List<Utterance> expired = new ArrayList<>();
+            synchronized (lock) {
+                try {
+                    next = awaitNext(expired);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (next != null) playing = next;
+            }
+            abort(expired);
+            if (next == null) {
+                if (expired.isEmpty()) return; // shut down
+                continue;
+            }
+            boolean ok = false;
+            try {
+                if (next.hasAudio()) {
+                    sink.play(next.audio.getNow(null), () -> next.stopped);
+                    ok = true;
+                }
+            } catch (Exception ignored) {
+                // a line that cannot be played is counted and skipped
+            } finally {
+                synchronized (lock) {
+                    playing = null;
+                    if (ok) played++;
+                    else failed++;
+                }
+            }
+        }
+    }
+
+    // Under lock: wait until a queued line may play and its synthesis has finished; expired lines are dropped on the way
+    private Utterance awaitNext(List<Utterance> expired) throws InterruptedException {
+        while (!shutdown) {
+            long now = System.currentTimeMillis();
+            Utterance best = null;
+            long wakeAtMs = Long.MAX_VALUE;
+            boolean conversationAhead = false;
+            for (Iterator<Utterance> it = queue.iterator(); it.hasNext(); ) {
+                Utterance u = it.next();
+                if (now >= u.deadlineAtMs) {
+                    it.remove();
+                    expired.add(u);
+                    droppedDeadline++;
+                    continue;
+                }
+                wakeAtMs = Math.min(wakeAtMs, u.deadlineAtMs);
+                // Only the oldest conversation line may play; later ones wait for it even when ready
+                boolean mayPlay = !u.priority.conversation() || !conversationAhead;
+                if (u.priority.conversation()) conversationAhead = true;
+                if (mayPlay && u.audio.isDone() && (best == null || u.priority.rank < best.priority.rank)) best = u;
+            }
+            if (!expired.isEmpty()) {
+                return null; // abort them outside the lock, then look again
+            } else if (best != null) {
+                queue.remove(best);
+                return best;
+            } else if (wakeAtMs == Long.MAX_VALUE) {
+                lock.wait();
+            } else {
+                // Woken early when any synthesis finishes
+                lock.wait(Math.max(1L, wakeAtMs - now));
+            }
+        }
+        return null;
+    }
+}
@@ -21,6 +21,8 @@ public class VoiceAssignmentStore {
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private final Path file;
     private final Map<String, VoiceAssignment> map = new LinkedHashMap<>();
+    // Bumped on manual assignments/removals so in-memory caches keyed off the store know to drop stale picks
+    private volatile long userVersion;
 
     public static class VoiceAssignment {
         public String provider;   // "ElevenLabs" | "Azure" | "Polly"
@@ -66,15 +68,19 @@ public class VoiceAssignmentStore {
     public synchronized void put(String npcKey, VoiceAssignment a) {
         if (npcKey == null || a == null) return;
         map.put(npcKey, a);
+        if (!"auto".equalsIgnoreCase(a.assignedBy)) userVersion++;
         save();
     }
 
     public synchronized void remove(String npcKey) {
         if (npcKey == null) return;
         map.remove(npcKey);
+        userVersion++;
         save();
     }
 
+    public long userVersion() { return userVersion; }
+
     public synchronized Map<String, VoiceAssignment> all() {
         return Collections.unmodifiableMap(new LinkedHashMap<>(map));
     }
@@ -2,64 +2,307 @@ package com.example.osrstts.voice;
 
 import com.example.osrstts.OsrsTtsConfig;
 import com.example.osrstts.tts.AzureSpeechTtsClient;
+import com.example.osrstts.tts.BandwidthMonitor;
 import com.example.osrstts.tts.PollyTtsClient;
+import com.example.osrstts.tts.ProviderThreads;
 import com.example.osrstts.tts.TtsClient;
 import com.example.osrstts.tts.ElevenLabsTtsClient;
+import com.example.osrstts.tts.CancellationToken;
+import com.example.osrstts.tts.HedgedTtsClient;
+import com.example.osrstts.tts.PiperTtsClient;
 import com.example.osrstts.npc.NpcMetadataService;
+import com.example.osrstts.text.TextNormalizer;
 import com.example.osrstts.usage.UsageTracker;
 
 import javax.sound.sampled.*;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import javazoom.jl.player.Player;
 
 public class VoiceRuntime {
     private final OsrsTtsConfig cfg;
-    private final VoiceSelector selector;
-    private final TtsClient tts;
+    // Built concurrently in the background; callers chain on the parts they need (see the constructor)
+    private final CompletableFuture<VoiceSelector> selector;
+    private final CompletableFuture<TtsClient> tts;
     private final AudioCache cache;
-    private final UsageTracker usage;
-    private final VoiceAssignmentStore assignmentStore;
-    private final VoiceSelectionPipeline pipeline;
-    private String lastPlayKey;
-    private long lastPlayAtMs;
+    private final CompletableFuture<UsageTracker> usage;
+    private final CompletableFuture<VoiceAssignmentStore> assignmentStore;
+    private final CompletableFuture<VoiceSelectionPipeline> pipeline;
+    private final long createdAtNanos = System.nanoTime();
+    private final StringBuffer timeline = new StringBuffer();
+    private final UtteranceScheduler scheduler = new UtteranceScheduler(this::playAudio);
+    private final SpeechDeduper deduper = SpeechDeduper.fromSystemProperties();
+    // Idle refresh interval for the provider connection; 0 disables refreshing (the initial warm-up still runs)
+    private static final long KEEPALIVE_MS = Long.getLong("osrs.tts.keepAliveMs", 30_000L);
+    private java.util.concurrent.ScheduledExecutorService warmer;
+    private volatile long lastNetworkAtMs;
 
     // Known public 11Labs voice as a safe fallback
     private static final String DEFAULT_ELEVEN_VOICE = "Rachel (21m00Tcm4TlvDq8ikWAM)";
 
+    /**
+     * Returns immediately. The provider client (Polly walks the whole AWS credential chain), mapping files,
+     * assignment store, usage file and NPC metadata all load at once on short-lived init threads; speak*
+     * calls made meanwhile wait (off the caller's thread) only for what they use. See {@link #whenInitialized()}.
+     */
     public VoiceRuntime(OsrsTtsConfig cfg) {
         this.cfg = cfg;
-        this.selector = new VoiceSelector(
-                cfg.getProvider(),
+        this.cache = cfg.isCacheEnabled() ? new AudioCache(cfg.getCacheDir()) : null;
+        java.util.concurrent.ExecutorService init = java.util.concurrent.Executors.newFixedThreadPool(4, r -> {
+            Thread t = new Thread(r, "osrs-tts-init");
+            t.setDaemon(true);
+            return t;
+        });
+        String prov = cfg.getProvider();
+        this.tts = CompletableFuture.supplyAsync(() -> timed("provider", this::createClient), init);
+        this.selector = CompletableFuture.supplyAsync(() -> timed("mappings", () -> new VoiceSelector(
+                prov,
                 cfg.getDefaultVoice(),
                 cfg.getVoiceMappingFile(),
                 cfg.getNpcMaleVoice(),
                 cfg.getNpcFemaleVoice(),
                 cfg.getNpcKidVoice()
-        );
+        )), init);
+        this.assignmentStore = CompletableFuture.supplyAsync(() -> timed("assignments", VoiceAssignmentStore::new), init);
+        this.usage = CompletableFuture.supplyAsync(() -> timed("usage", UsageTracker::new), init);
+        CompletableFuture<NpcMetadataService> npcMetadata = CompletableFuture.supplyAsync(() -> timed("npcMetadata", NpcMetadataService::new), init);
+        this.pipeline = CompletableFuture.allOf(selector, assignmentStore, npcMetadata).thenApply(v -> timed("pipeline",
+                () -> new VoiceSelectionPipeline(prov, selector.join(), assignmentStore.join(), npcMetadata.join())));
+        init.shutdown(); // queued work still runs; the threads exit when it is done
+    }
+
+    private TtsClient createClient() {
         String prov = cfg.getProvider();
+        TtsClient primary = createClient(prov);
+        // The wrapper always adds the circuit breaker; it only hedges when a secondary is opted into
+        if ("false".equalsIgnoreCase(System.getProperty("osrs.tts.hedge", "true"))) return primary;
+        return new HedgedTtsClient(primary, createHedgeClient(prov));
+    }
+
+    private TtsClient createClient(String prov) {
         if ("ElevenLabs".equalsIgnoreCase(prov)) {
             // Use 11Labs and request WAV-compatible output
-            this.tts = new ElevenLabsTtsClient(cfg.getElevenKey(), cfg.getElevenModel(), "wav_22050");
+            return new ElevenLabsTtsClient(cfg.getElevenKey(), cfg.getElevenModel(), "wav_22050");
         } else if ("Azure".equalsIgnoreCase(prov)) {
-            this.tts = new AzureSpeechTtsClient(cfg.getAzureKey(), cfg.getAzureRegion(), cfg.getAudioOutputFormat());
-        } else {
-            // Prefer WAV for unified playback by switching Polly to PCM if implemented.
-            this.tts = new PollyTtsClient();
+            return new AzureSpeechTtsClient(cfg.getAzureKey(), cfg.getAzureRegion(), cfg.getAudioOutputFormat());
+        } else if ("Piper".equalsIgnoreCase(prov)) {
+            return new PiperTtsClient(cfg.getPiperCommand(), cfg.getPiperModel());
         }
-        this.cache = cfg.isCacheEnabled() ? new AudioCache(cfg.getCacheDir()) : null;
-        this.usage = new UsageTracker();
-        this.assignmentStore = new VoiceAssignmentStore();
-        this.pipeline = new VoiceSelectionPipeline(cfg.getProvider(), selector, assignmentStore, new NpcMetadataService());
+        // Prefer WAV for unified playback by switching Polly to PCM if implemented.
+        return new PollyTtsClient();
     }
 
-    public VoiceAssignmentStore getAssignmentStore() { return assignmentStore; }
-    public UsageTracker getUsageTracker() { return usage; }
-    public VoiceSelectionPipeline getPipeline() { return pipeline; }
+    /**
+     * Second provider that slow or failing lines are hedged to, only when osrs.tts.hedgeProvider names one (Azure,
+     * ElevenLabs, Polly or Piper) that is set up and differs from the primary. Hedged lines can be billed on both
+     * providers and some play in the secondary's voice, so having a second key configured is not enough to opt in.
+     */
+    private TtsClient createHedgeClient(String primary) {
+        String prov = System.getProperty("osrs.tts.hedgeProvider", "").trim();
+        if (prov.isEmpty() || prov.equalsIgnoreCase(primary)) return null;
+        if (!"Polly".equalsIgnoreCase(prov) && !"Azure".equalsIgnoreCase(prov) && !"ElevenLabs".equalsIgnoreCase(prov)
+                && !"Piper".equalsIgnoreCase(prov)) return null;
+        TtsClient client = createClient(prov);
+        if (client.isConfigured(cfg)) return client;
+        client.shutdown();
+        return null;
+    }
+
+    private <T> T timed(String component, Supplier<T> build) {
+        long t0 = System.nanoTime();
+        String outcome = "";
+        try {
+            return build.get();
+        } catch (RuntimeException | Error e) {
+            outcome = " failed: " + e;
+            throw e;
+        } finally {
+            long end = System.nanoTime();
+            timeline.append(timeline.length() == 0 ? "" : ", ").append(component).append('=')
+                    .append((end - t0) / 1_000_000).append("ms (ready at +").append((end - createdAtNanos) / 1_000_000).append("ms)")
+                    .append(outcome);
+        }
+    }
+
+    /** Completes, with a per-component startup timeline, once every component has loaded or failed. */
+    public CompletableFuture<String> whenInitialized() {
+        return CompletableFuture.allOf(tts, selector, assignmentStore, usage, pipeline).handle((v, ex) -> timeline.toString());
+    }
+
+    // Still loading if the runtime was only just built; callers on the UI or client thread must not join these
+    public CompletableFuture<VoiceAssignmentStore> getAssignmentStore() { return assignmentStore; }
+    public CompletableFuture<UsageTracker> getUsageTracker() { return usage; }
+    public CompletableFuture<VoiceSelectionPipeline> getPipeline() { return pipeline; }
+
+    /**
+     * Release background resources (mapping watcher, playback, the provider clients with their processes, pools and
+     * temp files). A client still being created is shut down once it exists. The runtime must not be used afterwards.
+     */
+    public void shutdown() {
+        selector.thenAccept(VoiceSelector::shutdown);
+        tts.thenAccept(TtsClient::shutdown);
+        scheduler.shutdown();
+        synchronized (this) {
+            if (warmer != null) warmer.shutdownNow();
+        }
+    }
+
+    /**
+     * Pre-open the provider connection off the calling thread, then refresh it whenever nothing has been
+     * sent for {@code osrs.tts.keepAliveMs}, so the first line after a rebuild or a quiet spell does not pay
+     * DNS, TCP and TLS setup. Only the plugin's long-lived runtime calls this; throwaway test runtimes don't.
+     */
+    public synchronized void startConnectionWarmup() {
+        if (warmer != null) return;
+        warmer = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "osrs-tts-keepalive");
+            t.setDaemon(true);
+            return t;
+        });
+        warmer.execute(() -> warmConnection(false));
+        if (KEEPALIVE_MS > 0) {
+            warmer.scheduleWithFixedDelay(() -> {
+                if (System.currentTimeMillis() - lastNetworkAtMs >= KEEPALIVE_MS) warmConnection(true);
+            }, KEEPALIVE_MS, KEEPALIVE_MS, java.util.concurrent.TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void warmConnection(boolean refresh) {
+        boolean debug = "true".equalsIgnoreCase(System.getProperty("osrs.tts.debug", "false"));
+        long t0 = System.currentTimeMillis();
+        try {
+            TtsClient tts = this.tts.join(); // the warmer's own thread waits for the client to exist
+            if (!tts.isConfigured(cfg)) return;
+            if (refresh) tts.keepAlive();
+            else tts.warmUp();
+            lastNetworkAtMs = System.currentTimeMillis();
+            if (debug) System.out.println("TTS " + tts.getProviderName() + " connection " + (refresh ? "refreshed" : "warmed") + " in " + (lastNetworkAtMs - t0) + "ms");
+        } catch (Exception e) {
+            if (debug) System.out.println("TTS " + cfg.getProvider() + " warm-up failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Playback queue depth, drops and preemptions, suppressed duplicates, provider breaker/hedge counters and,
+     * with adaptive formats on, per-provider throughput and what compression saved.
+     */
+    public String getPlaybackStats() {
+        TtsClient client = tts.getNow(null);
+        return scheduler.getStats() + " " + deduper.getStats() + " providerThreads=" + ProviderThreads.kind()
+                + (client instanceof HedgedTtsClient ? " " + ((HedgedTtsClient) client).getStats() : "")
+                + (BandwidthMonitor.shared().isEnabled() ? " " + BandwidthMonitor.shared().getStats() : "");
+    }
 
     public void speakNpc(String npcName, String text, Set<String> tags) throws Exception {
-        VoiceSelection sel = pipeline.chooseForNpc(null, npcName, text, tags);
+        speakNpc(null, npcName, text, tags);
+    }
+
+    /**
+     * @param npcId NPC composition id when known (dialog chathead / interacting NPC); keys the voice
+     *              profile so same-named NPCs can sound different. Null falls back to name keying.
+     */
+    public void speakNpc(Integer npcId, String npcName, String text, Set<String> tags) throws Exception {
+        String normalized = AudioCache.normalizeText(text);
+        if (!shouldSpeak(dialogueFingerprint(npcName, normalized))) return;
+        CancellationToken token = new CancellationToken();
+        scheduler.submit(UtteranceScheduler.Priority.DIALOGUE, speakerKey("npc", npcId, npcName), npcAudio(npcId, npcName, text, tags, normalized, token), token);
+    }
+
+    /**
+     * NPC (or other player) overhead chat: same voice as {@link #speakNpc}, but played at the lowest
+     * priority and dropped if it cannot start within a few seconds.
+     * @param actor the speaking instance (e.g. NPC index or player name); two NPCs saying the same line are not repeats
+     */
+    public void speakOverhead(String actor, Integer npcId, String speakerName, String text, Set<String> tags) {
+        String normalized = AudioCache.normalizeText(text);
+        if (!shouldSpeak(overheadFingerprint(actor, normalized))) return;
+        CancellationToken token = new CancellationToken();
+        scheduler.submit(UtteranceScheduler.Priority.OVERHEAD, speakerKey("overhead", npcId, speakerName), npcAudio(npcId, speakerName, text, tags, normalized, token), token);
+    }
+
+    /**
+     * Start synthesizing an NPC line without playing it, for text that may still be superseded
+     * (e.g. dialogue that arrived without terminal punctuation). See {@link Prepared}.
+     */
+    public Prepared prepareNpc(Integer npcId, String npcName, String text, Set<String> tags) {
+        String normalized = AudioCache.normalizeText(text);
+        long fp = dialogueFingerprint(npcName, normalized);
+        if (deduper.recentlySpoken(fp, System.currentTimeMillis())) return new Prepared(fp, null, CancellationToken.NONE, null, null);
+        CancellationToken token = new CancellationToken();
+        return new Prepared(fp, npcAudio(npcId, npcName, text, tags, normalized, token), token, UtteranceScheduler.Priority.DIALOGUE, speakerKey("npc", npcId, npcName));
+    }
+
+    /** Player-voice counterpart of {@link #prepareNpc}. */
+    public Prepared preparePlayer(String text) {
+        String normalized = AudioCache.normalizeText(text);
+        long fp = SpeechDeduper.fingerprint("player", normalized);
+        if (deduper.recentlySpoken(fp, System.currentTimeMillis())) return new Prepared(fp, null, CancellationToken.NONE, null, null);
+        VoiceSelection sel = playerSelection();
+        String cacheKey = cacheKey("player", sel, normalized);
+        CancellationToken token = new CancellationToken();
+        return new Prepared(fp, synthesize(cacheKey, sel, normalized, token), token, UtteranceScheduler.Priority.PLAYER, "player");
+    }
+
+    /**
+     * Audio synthesized ahead of knowing whether it will be needed. Exactly one of {@link #commit()}
+     * (play as soon as ready) or {@link #discard()} (drop the result) takes effect. A line spoken within
+     * the dedupe window is not synthesized at all and never commits.
+     */
+    public final class Prepared {
+        private final long fingerprint;
+        private final CompletableFuture<byte[]> audio;
+        private final CancellationToken token;
+        private final UtteranceScheduler.Priority priority;
+        private final String speakerKey;
+        private final long startedAtMs = System.currentTimeMillis();
+        private volatile long readyAtMs;
+        private final java.util.concurrent.atomic.AtomicBoolean settled = new java.util.concurrent.atomic.AtomicBoolean();
+
+        private Prepared(long fingerprint, CompletableFuture<byte[]> audio, CancellationToken token, UtteranceScheduler.Priority priority, String speakerKey) {
+            this.fingerprint = fingerprint;
+            this.audio = audio != null ? audio : CompletableFuture.completedFuture(null);
+            this.token = token;
+            this.priority = priority;
+            this.speakerKey = speakerKey;
+            this.audio.whenComplete((a, ex) -> readyAtMs = System.currentTimeMillis());
+        }
+
+        /** Play when ready. @return false if already settled or suppressed as a repeat */
+        public boolean commit() {
+            if (!settled.compareAndSet(false, true)) return false;
+            if (priority == null || !deduper.firstInWindow(fingerprint, System.currentTimeMillis())) return false;
+            scheduler.submit(priority, speakerKey, audio, token);
+            return true;
+        }
+
+        /** Drop the result, aborting synthesis still in flight; it is never played. @return false if already settled */
+        public boolean discard() {
+            if (!settled.compareAndSet(false, true)) return false;
+            token.cancel();
+            audio.cancel(false);
+            return true;
+        }
+
+        public long startedAtMs() { return startedAtMs; }
+        /** 0 until synthesis finished (or failed). */
+        public long readyAtMs() { return readyAtMs; }
+        /** Completes when synthesis finishes, whether or not the audio is played. */
+        public CompletableFuture<Void> whenReady() { return audio.handle((a, ex) -> null); }
+    }
+
+    // Voice selection needs the pipeline; a line spoken while it is still loading waits for it off the caller's thread
+    private CompletableFuture<byte[]> npcAudio(Integer npcId, String npcName, String text, Set<String> tags, String normalized, CancellationToken token) {
+        return pipeline.thenCompose(p -> {
+            VoiceSelection sel = npcSelection(p, npcId, npcName, text, tags);
+            return synthesize(cacheKey("npc", sel, normalized), sel, normalized, token);
+        });
+    }
+
+    private VoiceSelection npcSelection(VoiceSelectionPipeline pipeline, Integer npcId, String npcName, String text, Set<String> tags) {
+        VoiceSelection sel = pipeline.chooseForNpc(npcId, npcName, text, tags);
         boolean debug = "true".equalsIgnoreCase(System.getProperty("osrs.tts.debug", "false"));
         if ("ElevenLabs".equalsIgnoreCase(cfg.getProvider())) {
             // Ensure sel.voiceName contains a voice_id (format: Name (id))
@@ -73,15 +316,37 @@ public class VoiceRuntime {
             }
         }
         if (debug) {
-            System.out.println("TTS NPC sel voice=" + sel.voiceName + ", tags=" + (tags == null ? "[]" : tags.toString()) + ", npc='" + npcName + "'");
+            System.out.println("TTS NPC sel voice=" + sel.voiceName + ", tags=" + (tags == null ? "[]" : tags.toString()) + ", npc='" + npcName + "'" + (npcId != null ? " id=" + npcId : ""));
         }
-        String normalized = AudioCache.normalizeText(text);
-        String cacheKey = cacheKey("npc", sel, normalized);
-        if (!shouldPlay(cacheKey)) return;
-        submitSynthesisAndPlay(cacheKey, sel, normalized);
+        return sel;
     }
 
     public void speakNarrator(String text) throws Exception {
+        String normalized = AudioCache.normalizeText(text);
+        if (!shouldSpeak("narrator", normalized)) return;
+        VoiceSelection sel = narratorSelection();
+        String cacheKey = cacheKey("narrator", sel, normalized);
+        submitSynthesisAndPlay(cacheKey, sel, normalized, UtteranceScheduler.Priority.NARRATION, "narrator");
+    }
+
+    /**
+     * Narrator audio for text without playing it (cache first, otherwise synthesized and cached).
+     * Lets callers hold on to audio they expect to replay, such as book pages.
+     */
+    public CompletableFuture<byte[]> narratorAudio(String text) {
+        VoiceSelection sel = narratorSelection();
+        String normalized = AudioCache.normalizeText(text);
+        return synthesize(cacheKey("narrator", sel, normalized), sel, normalized);
+    }
+
+    /** Play audio obtained from {@link #narratorAudio} once it is ready, with the usual repeat suppression. */
+    public void playNarrator(String text, CompletableFuture<byte[]> audio) {
+        String normalized = AudioCache.normalizeText(text);
+        if (!shouldSpeak("narrator", normalized)) return;
+        scheduler.submit(UtteranceScheduler.Priority.NARRATION, "narrator", audio);
+    }
+
+    private VoiceSelection narratorSelection() {
         VoiceSelection sel;
         String prov = cfg.getProvider();
         if ("Azure".equalsIgnoreCase(prov)) {
@@ -103,13 +368,18 @@ public class VoiceRuntime {
         } else {
             sel = VoiceSelection.of("Joanna", null); // Polly narrator default
         }
-        String normalized = AudioCache.normalizeText(text);
-        String cacheKey = cacheKey("narrator", sel, normalized);
-        if (!shouldPlay(cacheKey)) return;
-        submitSynthesisAndPlay(cacheKey, sel, normalized);
+        return sel;
     }
 
     public void speakPlayer(String text) throws Exception {
+        String normalized = AudioCache.normalizeText(text);
+        if (!shouldSpeak("player", normalized)) return;
+        VoiceSelection sel = playerSelection();
+        String cacheKey = cacheKey("player", sel, normalized);
+        submitSynthesisAndPlay(cacheKey, sel, normalized, UtteranceScheduler.Priority.PLAYER, "player");
+    }
+
+    private VoiceSelection playerSelection() {
         String v = cfg.getPlayerVoice();
         if ("ElevenLabs".equalsIgnoreCase(cfg.getProvider()) && !looksElevenVoiceId(v)) {
             String nv = cfg.getNarratorVoice();
@@ -118,74 +388,107 @@ public class VoiceRuntime {
                 System.out.println("TTS Player ElevenLabs: using voice '" + v + "'");
             }
         }
-        VoiceSelection sel = VoiceSelection.of(v, null);
-        String normalized = AudioCache.normalizeText(text);
-        String cacheKey = cacheKey("player", sel, normalized);
-        if (!shouldPlay(cacheKey)) return;
-        submitSynthesisAndPlay(cacheKey, sel, normalized);
+        return VoiceSelection.of(v, null);
     }
 
-    private boolean shouldPlay(String key) {
-        long now = System.currentTimeMillis();
-        if (key != null && key.equals(lastPlayKey) && (now - lastPlayAtMs) < 2500) {
-            return false;
-        }
-        lastPlayKey = key;
-        lastPlayAtMs = now;
-        return true;
+    /** Whether {@link #speakOverhead} would drop this line as a repeat, so callers can skip it before spending on it. */
+    public boolean isRepeatOverhead(String actor, String text) {
+        return deduper.recentlySpoken(overheadFingerprint(actor, AudioCache.normalizeText(text)), System.currentTimeMillis());
+    }
+
+    // Checked before voice selection and synthesis; the same text from any source within the window is spoken once
+    private boolean shouldSpeak(String kind, String normalizedText) {
+        return shouldSpeak(SpeechDeduper.fingerprint(kind, normalizedText));
+    }
+
+    private boolean shouldSpeak(long fingerprint) {
+        return deduper.firstInWindow(fingerprint, System.currentTimeMillis());
+    }
+
+    // Keyed by name, not id: the chat message and the dialog widget of one line both carry the name, while the id
+    // is resolved separately on each path. Different speakers saying the same words are different lines.
+    private static long dialogueFingerprint(String npcName, String normalizedText) {
+        String name = TextNormalizer.nameKey(npcName);
+        return SpeechDeduper.fingerprint("npc:" + (name == null ? "" : name), normalizedText);
+    }
+
+    private static long overheadFingerprint(String actor, String normalizedText) {
+        return SpeechDeduper.fingerprint("overhead:" + (actor == null ? "" : actor), normalizedText);
+    }
+
+    private void submitSynthesisAndPlay(String key, VoiceSelection sel, String normalizedText, UtteranceScheduler.Priority priority, String speakerKey) {
+        CancellationToken token = new CancellationToken();
+        scheduler.submit(priority, speakerKey, synthesize(key, sel, normalizedText, token), token);
     }
 
-    private void submitSynthesisAndPlay(String key, VoiceSelection sel, String normalizedText) {
+    // Supersede key: a new line from the same speaker replaces the old one
+    private static String speakerKey(String kind, Integer id, String name) {
+        if (id != null) return kind + ":#" + id;
+        return kind + ":" + (name == null ? "" : name.toLowerCase(java.util.Locale.ROOT));
+    }
+
+    /** Cached or freshly synthesized audio (cached on success); completes with null when synthesis fails. */
+    private CompletableFuture<byte[]> synthesize(String key, VoiceSelection sel, String normalizedText) {
+        return synthesize(key, sel, normalizedText, CancellationToken.NONE);
+    }
+
+    /** @param token cancelled when the line is dropped; aborts the provider request if it is still running */
+    private CompletableFuture<byte[]> synthesize(String key, VoiceSelection sel, String normalizedText, CancellationToken token) {
         // 1) Try cache synchronously
         try {
             if (cache != null) {
                 byte[] hitWav = cache.get(key, "wav");
-                if (hitWav != null) { playAudio(hitWav); return; }
+                if (hitWav != null) return CompletableFuture.completedFuture(hitWav);
                 byte[] hitMp3 = cache.get(key, "mp3");
-                if (hitMp3 != null) { playAudio(hitMp3); return; }
+                if (hitMp3 != null) return CompletableFuture.completedFuture(hitMp3);
             }
         } catch (Exception ignored) {}
-        // 2) Synthesize asynchronously
-        tts.synthesizeAsync(normalizedText, sel)
-            .thenAccept(audio -> {
-                try {
-                    if (audio != null) {
-                        usage.addCharacters(normalizedText.length());
-                        if (cache != null) {
-                            try {
-                                if (looksRiffWav(audio)) cache.put(key, "wav", audio);
-                                else if (looksMp3(audio)) cache.put(key, "mp3", audio);
-                                else cache.put(key, "bin", audio);
-                            } catch (Exception ignored) {}
-                        }
-                        playAudio(audio);
-                    }
-                } catch (Exception ignored) {}
+        // 2) Synthesize asynchronously once the provider client exists
+        return tts.thenCompose(client -> {
+                lastNetworkAtMs = System.currentTimeMillis();
+                return client.synthesizeAsync(normalizedText, sel, token);
             })
-            .exceptionally(ex -> {
+            .thenApply(audio -> {
+                if (audio != null) {
+                    usage.thenAccept(u -> u.addCharacters(normalizedText.length()));
+                    if (isCacheable(audio)) cachePut(key, audio);
+                }
+                return audio;
+            })
+            .handle((audio, ex) -> {
+                if (ex == null) return CompletableFuture.completedFuture(audio);
+                if (token.isCancelled()) return CompletableFuture.<byte[]>completedFuture(null); // dropped: no fallback retry
                 String msg = ex.getMessage() == null ? "" : ex.getMessage();
                 if (msg.contains("Azure TTS error 400")) {
                     // Retry with a safe fallback voice
                     boolean female = normalizedText != null && normalizedText.toLowerCase().contains("she ");
                     String fallbackVoice = female ? "en-US-JennyNeural" : "en-US-GuyNeural";
                     VoiceSelection fbSel = VoiceSelection.of(fallbackVoice, sel.style);
-                    tts.synthesizeAsync(normalizedText, fbSel).thenAccept(audio -> {
-                        try {
-                            if (audio != null) {
-                                if (cache != null) {
-                                    try {
-                                        if (looksRiffWav(audio)) cache.put(key, "wav", audio);
-                                        else if (looksMp3(audio)) cache.put(key, "mp3", audio);
-                                        else cache.put(key, "bin", audio);
-                                    } catch (Exception ignored) {}
-                                }
-                                playAudio(audio);
-                            }
-                        } catch (Exception ignored) {}
-                    });
+                    return tts.join().synthesizeAsync(normalizedText, fbSel, token)
+                        .thenApply(fb -> {
+                            if (fb != null && isCacheable(fb)) cachePut(key, fb);
+                            return fb;
+                        })
+                        .exceptionally(fbEx -> null);
                 }
-                return null;
-            });
+                return CompletableFuture.<byte[]>completedFuture(null);
+            })
+            .thenCompose(f -> f);
+    }
+
+    // Audio from the hedge provider is a stand-in voice; it plays once but never lands in the cache
+    private boolean isCacheable(byte[] audio) {
+        TtsClient client = tts.getNow(null);
+        return !(client instanceof HedgedTtsClient) || ((HedgedTtsClient) client).isCacheable(audio);
+    }
+
+    private void cachePut(String key, byte[] audio) {
+        if (cache == null) return;
+        try {
+            if (looksRiffWav(audio)) cache.put(key, "wav", audio);
+            else if (looksMp3(audio)) cache.put(key, "mp3", audio);
+            else cache.put(key, "bin", audio);
+        } catch (Exception ignored) {}
     }
 
     private static boolean looksRiffWav(byte[] data) {
@@ -281,69 +584,99 @@ public class VoiceRuntime {
         return name.matches("[A-Za-z0-9]{20,}");
     }
 
-    private void playAudio(byte[] data) throws Exception {
+    /**
+     * Play on the calling thread (the scheduler's playback thread) until the audio ends or {@code stopped}
+     * reports true, so lines never overlap and a superseded line can be cut off.
+     */
+    private void playAudio(byte[] data, java.util.function.BooleanSupplier stopped) throws Exception {
         if (data == null || data.length == 0) return;
         if (looksRiffWav(data)) {
             // WAV path: Clip then fallback to streaming
             try (ByteArrayInputStream bais = new ByteArrayInputStream(data); AudioInputStream ais = AudioSystem.getAudioInputStream(bais)) {
-                Clip clip = AudioSystem.getClip();
-                clip.open(ais);
-                applyVolume(clip);
-                clip.start();
+                playClip(ais, stopped);
                 return;
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Throwable clipErr) {
-                // Fallback: stream via SourceDataLine in background
-                new Thread(() -> {
-                    try (ByteArrayInputStream bais2 = new ByteArrayInputStream(data); AudioInputStream src = AudioSystem.getAudioInputStream(bais2)) {
-                        AudioFormat base = src.getFormat();
-                        AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                                (base.getSampleRate() <= 0 ? 22050f : base.getSampleRate()),
-                                16,
-                                Math.max(1, base.getChannels()),
-                                Math.max(1, base.getChannels()) * 2,
-                                (base.getSampleRate() <= 0 ? 22050f : base.getSampleRate()),
-                                false);
-                        AudioInputStream pcmStream = AudioSystem.isConversionSupported(target, base)
-                                ? AudioSystem.getAudioInputStream(target, src)
-                                : src;
-                        DataLine.Info info = new DataLine.Info(SourceDataLine.class, pcmStream.getFormat());
-                        try (SourceDataLine line = (SourceDataLine) AudioSystem.getLine(info)) {
-                            line.open(pcmStream.getFormat());
-                            line.start();
-                            applyVolume(line);
-                            byte[] buf = new byte[4096];
-                            int n;
-                            while ((n = pcmStream.read(buf, 0, buf.length)) > 0) {
-                                line.write(buf, 0, n);
-                            }
-                            line.drain();
-                            line.stop();
+                // Fallback: stream via SourceDataLine
+                try (ByteArrayInputStream bais2 = new ByteArrayInputStream(data); AudioInputStream src = AudioSystem.getAudioInputStream(bais2)) {
+                    AudioFormat base = src.getFormat();
+                    AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                            (base.getSampleRate() <= 0 ? 22050f : base.getSampleRate()),
+                            16,
+                            Math.max(1, base.getChannels()),
+                            Math.max(1, base.getChannels()) * 2,
+                            (base.getSampleRate() <= 0 ? 22050f : base.getSampleRate()),
+                            false);
+                    AudioInputStream pcmStream = AudioSystem.isConversionSupported(target, base)
+                            ? AudioSystem.getAudioInputStream(target, src)
+                            : src;
+                    DataLine.Info info = new DataLine.Info(SourceDataLine.class, pcmStream.getFormat());
+                    try (SourceDataLine line = (SourceDataLine) AudioSystem.getLine(info)) {
+                        line.open(pcmStream.getFormat());
+                        line.start();
+                        applyVolume(line);
+                        byte[] buf = new byte[4096];
+                        int n;
+                        while (!stopped.getAsBoolean() && (n = pcmStream.read(buf, 0, buf.length)) > 0) {
+                            line.write(buf, 0, n);
                         }
-                        if (pcmStream != src) try { pcmStream.close(); } catch (IOException ignored) {}
-                    } catch (Exception ignored) {
-                        // swallow fallback errors to avoid crashing event thread
+                        if (stopped.getAsBoolean()) line.flush();
+                        else line.drain();
+                        line.stop();
                     }
-                }, "tts-audio-stream").start();
+                    if (pcmStream != src) try { pcmStream.close(); } catch (IOException ignored) {}
+                } catch (Exception ignored) {
+                    // swallow fallback errors so the playback thread keeps going
+                }
                 return;
             }
         }
         if (looksMp3(data)) {
-            // MP3 path: use JLayer Player in background
-            new Thread(() -> {
-                try (ByteArrayInputStream bais = new ByteArrayInputStream(data)) {
-                    Player player = new Player(bais);
-                    player.play();
-                } catch (Exception ignored) {}
-            }, "tts-mp3-player").start();
+            // Decode locally and play like WAV, so volume applies; a few ms per line
+            byte[] wav = null;
+            try {
+                wav = Mp3Decoder.toWav(data);
+            } catch (Exception ignored) {}
+            if (wav != null) {
+                playAudio(wav, stopped);
+                return;
+            }
+            // MP3 the decoder rejected: JLayer's own player, a frame at a time so it can be stopped
+            try (ByteArrayInputStream bais = new ByteArrayInputStream(data)) {
+                Player player = new Player(bais);
+                try {
+                    while (!stopped.getAsBoolean() && player.play(1)) { }
+                } finally {
+                    player.close();
+                }
+            } catch (Exception ignored) {}
             return;
         }
         // Unknown: attempt generic WAV open; if fails, ignore silently
         try (ByteArrayInputStream bais = new ByteArrayInputStream(data); AudioInputStream ais = AudioSystem.getAudioInputStream(bais)) {
-            Clip clip = AudioSystem.getClip();
+            playClip(ais, stopped);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable ignored) {}
+    }
+
+    private void playClip(AudioInputStream ais, java.util.function.BooleanSupplier stopped) throws Exception {
+        Clip clip = AudioSystem.getClip();
+        try {
             clip.open(ais);
             applyVolume(clip);
             clip.start();
-        } catch (Throwable ignored) {}
+            // Bounded by the clip length in case the device never reports the last frame
+            long giveUpAt = System.currentTimeMillis() + clip.getMicrosecondLength() / 1000L + 2000L;
+            while (!stopped.getAsBoolean() && clip.getFramePosition() < clip.getFrameLength()
+                    && System.currentTimeMillis() < giveUpAt) {
+                Thread.sleep(20);
+            }
+        } finally {
+            clip.stop();
+            clip.close();
+        }
     }
 
     private void applyVolume(Line line) {
@@ -6,7 +6,6 @@ import com.example.osrstts.tts.ElevenLabsVoiceCatalog;
 import java.util.Locale;
 import java.util.Set;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class VoiceSelectionPipeline {
     private final VoiceAssignmentStore store;
@@ -16,30 +15,57 @@ public class VoiceSelectionPipeline {
     private final ElevenLabsVoiceCatalog elevenCatalog;
     // Rotation state: tag -> next index (persist in memory only; stable enough per session)
     private final java.util.Map<String,Integer> tagRotationIndex = new java.util.concurrent.ConcurrentHashMap<>();
-    // Cache of tag -> ordered pool (hundreds) built lazily
-    private final java.util.Map<String,java.util.List<String>> tagVoicePools = new java.util.concurrent.ConcurrentHashMap<>();
+    // Gender-filtered views of the current catalog snapshot's per-tag pools; replaced, never cleared, on refresh
+    private volatile GenderPools genderPools;
+    // NPC composition id -> resolved profile; lets same-named NPCs keep distinct voices and skips re-selection
+    private final NpcProfileTable profiles = new NpcProfileTable();
+    private volatile long profilesUserVersion;
 
     public VoiceSelectionPipeline(String provider, VoiceSelector selector, VoiceAssignmentStore store, NpcMetadataService npcService) {
         this.provider = provider;
         this.selector = selector;
         this.store = store;
         this.npcService = npcService;
+        // Mapping hot-reloads can change any NPC's voice, so cached profiles must go
+        selector.setOnMappingsChanged(this::clearProfiles);
         this.elevenCatalog = "ElevenLabs".equalsIgnoreCase(provider) ? new ElevenLabsVoiceCatalog(System.getProperty("osrs.tts.eleven.key",""), System.getProperty("osrs.tts.eleven.model","eleven_turbo_v2_5")) : null;
+        // Warm the catalog in the background so the first lines don't find it stale
+        if (elevenCatalog != null) elevenCatalog.refreshIfStale();
     }
 
     public VoiceSelection chooseForNpc(Integer npcId, String npcName, String lineText, Set<String> inferredTags) {
-        NpcMetadataService.NpcMetadata meta = npcService.analyzeNpc(npcName);
-        String key = (npcId != null && npcId > 0) ? ("id:" + npcId) : npcName.toLowerCase();
-        VoiceAssignmentStore.VoiceAssignment locked = store.get(key).orElse(null);
-        // Only honor persisted manual assignments; auto picks should not override explicit mappings
-        if (locked != null && "user".equalsIgnoreCase(locked.assignedBy)) {
-            return VoiceSelection.of(locked.voiceId != null && !locked.voiceId.isBlank() ? locked.voiceId : locked.voiceLabel, inferStyle(lineText));
+        boolean hasId = npcId != null && npcId > 0;
+        if (hasId) {
+            // Manual edits in the store invalidate every cached profile
+            long userVersion = store.userVersion();
+            if (userVersion != profilesUserVersion) {
+                profiles.clear();
+                profilesUserVersion = userVersion;
+            }
+            NpcProfileTable.Profile profile = profiles.get(npcId);
+            if (profile != null) {
+                return VoiceSelection.of(profile.voiceName, profile.explicitStyle != null ? profile.explicitStyle : inferStyle(lineText));
+            }
         }
+        NpcMetadataService.NpcMetadata meta = npcService.analyzeNpc(npcName);
+        String key = hasId ? ("id:" + npcId) : npcName.toLowerCase();
         // Merge tags with metadata
         java.util.Set<String> tags = new java.util.HashSet<>(meta.allTags);
         if (inferredTags != null) tags.addAll(inferredTags);
-        // Apply selection (base mapping)
-        VoiceSelection sel = selector.select(npcName, lineText, tags);
+        VoiceAssignmentStore.VoiceAssignment locked = store.get(key).orElse(null);
+        if (hasId && !isUser(locked)) {
+            // Assignments made before NPCs were keyed by id are stored under the name; they still apply
+            VoiceAssignmentStore.VoiceAssignment byName = store.get(npcName.toLowerCase()).orElse(null);
+            if (isUser(byName)) locked = byName;
+        }
+        // Only honor persisted manual assignments; auto picks should not override explicit mappings
+        if (isUser(locked)) {
+            VoiceSelection userSel = VoiceSelection.of(locked.voiceId != null && !locked.voiceId.isBlank() ? locked.voiceId : locked.voiceLabel, inferStyle(lineText));
+            if (hasId) rememberProfile(npcId, userSel, lineText);
+            return userSel;
+        }
+        // Apply selection (base mapping); pools are seeded by the id key so same-named NPCs can differ
+        VoiceSelection sel = selector.select(npcName, lineText, tags, key);
         boolean mappingChoseVoice = sel != null && sel.voiceName != null && (!"ElevenLabs".equalsIgnoreCase(provider) || looksElevenId(sel.voiceName));
         // ElevenLabs dynamic enhancement: if selection lacks an id pattern, try catalog tag-driven pick
         if (!mappingChoseVoice && "ElevenLabs".equalsIgnoreCase(provider) && (sel.voiceName == null || !looksElevenId(sel.voiceName)) && elevenCatalog != null) {
@@ -106,9 +132,25 @@ public class VoiceSelectionPipeline {
                 store.put(key, VoiceAssignmentStore.VoiceAssignment.auto(provider, sel.voiceName, sel.voiceName, primaryTag));
             }
         }
+        if (hasId) rememberProfile(npcId, sel, lineText);
         return sel;
     }
 
+    private void rememberProfile(int npcId, VoiceSelection sel, String lineText) {
+        if (sel == null || sel.voiceName == null) return;
+        // A style that differs from the per-line inference came from the mapping and must stick
+        String inferred = inferStyle(lineText);
+        String explicitStyle = java.util.Objects.equals(sel.style, inferred) ? null : sel.style;
+        profiles.put(new NpcProfileTable.Profile(npcId, sel.voiceName, explicitStyle));
+    }
+
+    /** Drop cached id profiles, e.g. after mappings were reloaded. */
+    public void clearProfiles() { profiles.clear(); }
+
+    private static boolean isUser(VoiceAssignmentStore.VoiceAssignment a) {
+        return a != null && "user".equalsIgnoreCase(a.assignedBy);
+    }
+
     private boolean looksElevenId(String v) {
         if (v == null) return false;
         int i = v.lastIndexOf('(');
@@ -123,7 +165,6 @@ public class VoiceSelectionPipeline {
     private String randomFromTag(String tag, String seed) {
         // Use a time component to allow variability before persistence
         if (tag == null || elevenCatalog == null) return null;
-        elevenCatalog.ensureLoaded();
         // Reuse deterministicForTag but add a mild salt for first-time selection
         String salted = seed + "|rand|" + System.nanoTime();
         String candidate = elevenCatalog.deterministicForTag(tag, salted);
@@ -132,55 +173,54 @@ public class VoiceSelectionPipeline {
 
     private String rotatingRandomFromTag(String tag, String gender, String seed) {
         if (tag == null) return null;
-        elevenCatalog.ensureLoaded();
-        List<String> pool = tagVoicePools.computeIfAbsent(tag.toLowerCase(Locale.ROOT), t -> buildPoolForTag(t));
-        if (pool == null || pool.isEmpty()) return null;
-        // Filter by gender if available and at least 5 candidates after filter; else use full pool
-        List<String> genderFiltered = null;
+        elevenCatalog.refreshIfStale();
+        ElevenLabsVoiceCatalog.Snapshot snap = elevenCatalog.snapshot();
+        String[] pool = snap.poolForTag(tag);
+        if (pool.length == 0) return null;
+        // Prefer the gender-filtered pool when it has at least 5 candidates; else use full pool
+        String[] usePool = pool;
         if (gender != null) {
-            String g = gender.toLowerCase(Locale.ROOT);
-            genderFiltered = pool.stream().filter(v -> (g.equals("female") && looksFemaleName(v)) || (g.equals("male") && looksMaleName(v)) || (g.equals("kid") && v.toLowerCase(Locale.ROOT).contains("bella"))).collect(Collectors.toList());
-            if (genderFiltered.size() < 5) genderFiltered = null; // fallback to full pool if too small
+            String[] filtered = genderPool(snap, tag, gender.toLowerCase(Locale.ROOT));
+            if (filtered.length > 0) usePool = filtered;
         }
-        List<String> usePool = genderFiltered != null ? genderFiltered : pool;
         // Rotation index increments each time we assign a new voice for a tag
         int idx = tagRotationIndex.merge(tag.toLowerCase(Locale.ROOT), 1, Integer::sum) - 1;
         if (idx < 0) idx = 0;
-        int picked = Math.abs(idx) % usePool.size();
-        return usePool.get(picked);
+        return usePool[Math.abs(idx) % usePool.length];
     }
 
-    private List<String> buildPoolForTag(String tag) {
-        // Build a large, stable pseudo-random ordering for tag voices using hash of id+tag
-        java.util.List<String> pool = new java.util.ArrayList<>();
-        // Start with deterministic base voice
-        String base = elevenCatalog.deterministicForTag(tag, tag+":base");
-        if (base != null) pool.add(base);
-        // Expand by mixing gender + tag voice lists if available
-        for (String g : List.of("male","female","kid")) {
-            String gPick = elevenCatalog.anyVoiceIdLikeGender(g, tag+":"+g);
-            if (gPick != null && !pool.contains(gPick)) pool.add(gPick);
-        }
-        // As we lack a direct listing API by tag, synthesize extra candidates via salted deterministicForTag
-        for (int i=0;i<400;i++) { // attempt hundreds of unique
-            String v = elevenCatalog.deterministicForTag(tag, tag+"|extra|"+i);
-            if (v != null && looksElevenId(v) && !pool.contains(v)) pool.add(v);
-            if (pool.size() >= 500) break; // cap
+    // "tag|gender" -> pool (empty = too small), only ever filled from the snapshot it was created for
+    private static final class GenderPools {
+        final ElevenLabsVoiceCatalog.Snapshot snapshot;
+        final java.util.Map<String,String[]> pools = new java.util.concurrent.ConcurrentHashMap<>();
+
+        GenderPools(ElevenLabsVoiceCatalog.Snapshot snapshot) { this.snapshot = snapshot; }
+    }
+
+    private String[] genderPool(ElevenLabsVoiceCatalog.Snapshot snap, String tag, String g) {
+        GenderPools gp = genderPools;
+        if (gp == null || gp.snapshot != snap) { // catalog refreshed: start over for the new snapshot
+            gp = new GenderPools(snap);
+            genderPools = gp;
         }
-        // Shuffle with stable seed for variety but reproducibility across session
-        java.util.Random r = new java.util.Random(tag.hashCode());
-        for (int i=pool.size()-1;i>0;i--) { int j = r.nextInt(i+1); var tmp = pool.get(i); pool.set(i,pool.get(j)); pool.set(j,tmp); }
-        return pool;
+        return gp.pools.computeIfAbsent(tag.toLowerCase(Locale.ROOT) + "|" + g, k -> {
+            List<String> out = new java.util.ArrayList<>();
+            for (String v : snap.poolForTag(tag)) {
+                if ((g.equals("female") && looksFemaleName(v)) || (g.equals("male") && looksMaleName(v)) || (g.equals("kid") && v.toLowerCase(Locale.ROOT).contains("bella"))) out.add(v);
+            }
+            return out.size() < 5 ? new String[0] : out.toArray(new String[0]);
+        });
     }
 
     private String pooledPickForTag(String tag, String gender, String seedKey) {
         if (tag == null) return null;
         // Primary attempt: rotating pool (does not advance rotation yet)
-        List<String> pool = tagVoicePools.computeIfAbsent(tag.toLowerCase(Locale.ROOT), t -> buildPoolForTag(t));
-        if (pool == null || pool.isEmpty()) return null;
+        elevenCatalog.refreshIfStale();
+        String[] pool = elevenCatalog.snapshot().poolForTag(tag);
+        if (pool.length == 0) return null;
         // deterministic pick without rotation side effects
-        int idx = Math.abs((seedKey + "|pre|" + tag).hashCode()) % pool.size();
-        String candidate = pool.get(idx);
+        int idx = Math.abs((seedKey + "|pre|" + tag).hashCode()) % pool.length;
+        String candidate = pool[idx];
         if (gender != null) {
             String g = gender.toLowerCase(Locale.ROOT);
             if (g.equals("female") && looksMaleName(candidate)) return null; // force later gender aware path
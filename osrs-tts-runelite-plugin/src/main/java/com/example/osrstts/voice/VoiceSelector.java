@@ -1,5 +1,6 @@
 package com.example.osrstts.voice;
 
+import com.example.osrstts.text.TextNormalizer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.JsonParser;
@@ -15,20 +16,23 @@ public class VoiceSelector {
         // Allow // and /* */ comments in JSON mapping files
         MAPPER.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
     }
-    // Session-level tracking of unmapped NPC names to avoid duplicate writes
-    private static final java.util.Set<String> UNMAPPED = java.util.Collections.synchronizedSet(new java.util.HashSet<>());
-    private volatile long lastReloadTime = System.currentTimeMillis();
-    private static final long RELOAD_INTERVAL_MS = Long.getLong("osrs.tts.mappingReloadMs", 10_000L); // 10s default when enabled
+    // Ranked unmapped-NPC work list, shared by every selector in the process; written in the background
+    private static final UnmappedNpcLog UNMAPPED = new UnmappedNpcLog(java.nio.file.Path.of("quest-voices", "unmapped-npcs.txt"));
+    private static final long WATCH_SETTLE_MS = Long.getLong("osrs.tts.mappingSettleMs", 150L); // coalesce editor save bursts
     private final String initialMappingPath;
 
     private final String provider;          // "Azure" | "Polly" | "ElevenLabs"
     private final String defaultVoice;      // "auto" or provider voice name
-    private final Map<String, String> exactNpcMap = new HashMap<>();
-    private final Map<String, String> tagMap = new HashMap<>();
-    private final List<Map.Entry<Pattern, String>> regexNpcMap = new ArrayList<>();
 
-    // Normalized-name index for tolerant exact matches (case/spacing/punct)
-    private final Map<String, String> normalizedExactNpcMap = new HashMap<>();
+    // Published mapping view; replaced wholesale on reload so select() never sees a partial state
+    private volatile Mappings mappings = Mappings.EMPTY;
+    // Parsed mapping sources keyed by layer order (later keys override earlier ones); guarded by reloadLock
+    private final TreeMap<String, Fragment> fragments = new TreeMap<>();
+    private final Object reloadLock = new Object();
+    private java.nio.file.Path mappingFile;                                  // absolute, null when not configured
+    private final Map<java.nio.file.Path, Integer> questDirs = new LinkedHashMap<>(); // absolute dir -> search order
+    private volatile java.nio.file.WatchService watcher;
+    private volatile Runnable onMappingsChanged;
 
     private final String npcMaleVoice;
     private final String npcFemaleVoice;
@@ -156,32 +160,52 @@ public class VoiceSelector {
         this.npcKidVoice = npcKidVoice;
         this.initialMappingPath = mappingFilePath;
         loadMapping(mappingFilePath);
+        if (Boolean.parseBoolean(System.getProperty("osrs.tts.mappingWatch", "true"))) startWatcher();
     }
 
+    /** Immutable merged view of every mapping source. */
+    private static final class Mappings {
+        static final Mappings EMPTY = new Mappings(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList());
+
+        final Map<String, String> exactNpcMap;
+        final Map<String, String> normalizedExactNpcMap; // tolerant exact matches (case/spacing/punct)
+        final Map<String, String> tagMap;
+        final List<Map.Entry<Pattern, String>> regexNpcMap;
+
+        Mappings(Map<String, String> exact, Map<String, String> normalized, Map<String, String> tags, List<Map.Entry<Pattern, String>> regex) {
+            this.exactNpcMap = exact;
+            this.normalizedExactNpcMap = normalized;
+            this.tagMap = tags;
+            this.regexNpcMap = regex;
+        }
+    }
+
+    /** Entries parsed from a single mapping source, kept so one changed file can be re-parsed on its own. */
+    private static final class Fragment {
+        final Map<String, String> exact = new LinkedHashMap<>();
+        final Map<String, String> tags = new LinkedHashMap<>();
+        final List<Map.Entry<Pattern, String>> regex = new ArrayList<>();
+    }
+
+    /** Called after a hot reload publishes new mappings (e.g. to drop cached per-NPC selections). */
+    public void setOnMappingsChanged(Runnable listener) { this.onMappingsChanged = listener; }
+
     private void loadMapping(String path) {
-        try {
-            if (path != null) {
-                File f = new File(path);
-                if (f.exists()) {
-                    String json = Files.readString(f.toPath());
-                    parseMappingJson(json);
+        synchronized (reloadLock) {
+            fragments.clear();
+            questDirs.clear();
+            mappingFile = null;
+            try {
+                if (path != null && !path.isBlank()) {
+                    mappingFile = java.nio.file.Path.of(path).toAbsolutePath().normalize();
                     // Don't return; still allow layered overrides below
+                    readFragment(mappingFile, sourceKey(mappingFile, null));
                 }
-            }
+            } catch (Exception ignored) {}
             // Fallback to classpath resource
-            try (java.io.InputStream is = VoiceSelector.class.getClassLoader().getResourceAsStream("osrs-voices.json")) {
-                if (is != null) {
-                    String json = new String(is.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
-                    parseMappingJson(json);
-                }
-            }
+            readResourceFragment("osrs-voices.json", "1");
             // Layer in optional quest-specific lore overrides if present (duplicates overwrite prior entries)
-            try (java.io.InputStream is = VoiceSelector.class.getClassLoader().getResourceAsStream("quest-npc-voices.json")) {
-                if (is != null) {
-                    String json = new String(is.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
-                    parseMappingJson(json);
-                }
-            }
+            readResourceFragment("quest-npc-voices.json", "2");
             // Finally, if a filesystem folder exists, merge all *.json files from likely locations
             try {
                 // Primary search locations
@@ -196,18 +220,13 @@ public class VoiceSelector {
                 // Also check config folder where users may drop overrides
                 candidates.add(java.nio.file.Path.of("config", "osrs-tts", "quest-voices"));
 
-                for (java.nio.file.Path dir : candidates) {
-                    if (java.nio.file.Files.isDirectory(dir)) {
-                        try (var stream = java.nio.file.Files.list(dir)) {
-                            stream.filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json"))
-                                    .sorted() // deterministic order
-                                    .forEach(p -> {
-                                        try {
-                                            String json = java.nio.file.Files.readString(p);
-                                            parseMappingJson(json);
-                                        } catch (Exception ignored) { }
-                                    });
-                        }
+                for (java.nio.file.Path candidate : candidates) {
+                    java.nio.file.Path dir = candidate.toAbsolutePath().normalize();
+                    if (!java.nio.file.Files.isDirectory(dir) || questDirs.containsKey(dir)) continue;
+                    questDirs.put(dir, questDirs.size());
+                    try (var stream = java.nio.file.Files.list(dir)) {
+                        stream.filter(VoiceSelector::isJson)
+                                .forEach(p -> readFragment(p, sourceKey(null, p)));
                     }
                 }
             } catch (Exception ignored) { }
@@ -220,69 +239,202 @@ public class VoiceSelector {
                     if (loc != null && loc.toLowerCase(Locale.ROOT).endsWith(".jar")) {
                         try (java.util.zip.ZipFile zip = new java.util.zip.ZipFile(new java.io.File(loc))) {
                             java.util.Enumeration<? extends java.util.zip.ZipEntry> e = zip.entries();
-                            java.util.List<String> entries = new java.util.ArrayList<>();
                             while (e.hasMoreElements()) {
                                 var ze = e.nextElement();
                                 String name = ze.getName();
                                 if (name != null && name.startsWith("quest-voices/") && name.toLowerCase(Locale.ROOT).endsWith(".json")) {
-                                    entries.add(name);
+                                    readResourceFragment(name, "4|" + name); // TreeMap keeps them sorted
                                 }
                             }
-                            java.util.Collections.sort(entries);
-                            for (String res : entries) {
-                                try (java.io.InputStream is = VoiceSelector.class.getClassLoader().getResourceAsStream(res)) {
-                                    if (is != null) {
-                                        String json = new String(is.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
-                                        parseMappingJson(json);
-                                    }
-                                } catch (Exception ignored) {}
-                            }
                         }
                     }
                 }
             } catch (Exception ignored) { }
-        } catch (Exception ignored) {}
+            publish();
+        }
+    }
+
+    /**
+     * Layer order key for a filesystem source: the configured mapping file first, then quest-voice
+     * directories in search order, files sorted by name within each directory.
+     */
+    private String sourceKey(java.nio.file.Path mapping, java.nio.file.Path questFile) {
+        if (mapping != null) return "0";
+        Integer dirIdx = questDirs.get(questFile.getParent());
+        return String.format(Locale.ROOT, "3|%03d|%s", dirIdx != null ? dirIdx : 999, questFile.getFileName());
     }
 
-    private void parseMappingJson(String json) {
+    private static boolean isJson(java.nio.file.Path p) {
+        return p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+    }
+
+    private void readFragment(java.nio.file.Path file, String key) {
         try {
-            JsonNode root = MAPPER.readTree(json);
-            JsonNode exact = root.path("npcExact");
-            exact.fieldNames().forEachRemaining(name -> {
-                String val = exact.get(name).asText();
-                exactNpcMap.put(name, val);
+            if (java.nio.file.Files.isRegularFile(file)) {
+                Fragment f = parseMappingJson(java.nio.file.Files.readString(file));
+                if (f != null) { fragments.put(key, f); return; }
+            }
+        } catch (Exception ignored) { }
+        fragments.remove(key); // deleted or unreadable: drop its entries
+    }
+
+    private void readResourceFragment(String resource, String key) {
+        try (java.io.InputStream is = VoiceSelector.class.getClassLoader().getResourceAsStream(resource)) {
+            if (is != null) {
+                Fragment f = parseMappingJson(new String(is.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8));
+                if (f != null) fragments.put(key, f);
+            }
+        } catch (Exception ignored) { }
+    }
+
+    // Merge parsed fragments in layer order into a fresh immutable view (no JSON is re-read here)
+    private void publish() {
+        Map<String, String> exact = new HashMap<>();
+        Map<String, String> normalized = new HashMap<>();
+        Map<String, String> tags = new HashMap<>();
+        List<Map.Entry<Pattern, String>> regex = new ArrayList<>();
+        for (Fragment f : fragments.values()) {
+            f.exact.forEach((name, val) -> {
+                exact.put(name, val);
                 String norm = normalizeNameKey(name);
-                if (norm != null && !norm.isEmpty()) normalizedExactNpcMap.put(norm, val);
+                if (norm != null && !norm.isEmpty()) normalized.put(norm, val);
             });
+            tags.putAll(f.tags);
+            regex.addAll(f.regex);
+        }
+        mappings = new Mappings(Collections.unmodifiableMap(exact), Collections.unmodifiableMap(normalized),
+                Collections.unmodifiableMap(tags), Collections.unmodifiableList(regex));
+    }
+
+    private Fragment parseMappingJson(String json) {
+        try {
+            Fragment f = new Fragment();
+            JsonNode root = MAPPER.readTree(json);
+            JsonNode exact = root.path("npcExact");
+            exact.fieldNames().forEachRemaining(name -> f.exact.put(name, exact.get(name).asText()));
 
             JsonNode tags = root.path("tags");
-            tags.fieldNames().forEachRemaining(tag -> tagMap.put(tag.toLowerCase(Locale.ROOT), tags.get(tag).asText()));
+            tags.fieldNames().forEachRemaining(tag -> f.tags.put(tag.toLowerCase(Locale.ROOT), tags.get(tag).asText()));
 
             JsonNode regex = root.path("npcRegex");
             regex.fieldNames().forEachRemaining(expr -> {
                 Pattern p = Pattern.compile(expr, Pattern.CASE_INSENSITIVE);
-                regexNpcMap.add(Map.entry(p, regex.get(expr).asText()));
+                f.regex.add(Map.entry(p, regex.get(expr).asText()));
             });
-        } catch (Exception ignored) {}
+            return f;
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    private void startWatcher() {
+        try {
+            java.nio.file.WatchService ws = java.nio.file.FileSystems.getDefault().newWatchService();
+            Set<java.nio.file.Path> dirs = new LinkedHashSet<>();
+            synchronized (reloadLock) {
+                if (mappingFile != null && mappingFile.getParent() != null && java.nio.file.Files.isDirectory(mappingFile.getParent())) {
+                    dirs.add(mappingFile.getParent());
+                }
+                dirs.addAll(questDirs.keySet());
+            }
+            if (dirs.isEmpty()) { ws.close(); return; }
+            for (java.nio.file.Path dir : dirs) {
+                dir.register(ws, java.nio.file.StandardWatchEventKinds.ENTRY_CREATE,
+                        java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY, java.nio.file.StandardWatchEventKinds.ENTRY_DELETE);
+            }
+            watcher = ws;
+            Thread t = new Thread(() -> watchLoop(ws), "osrs-tts-mapping-watch");
+            t.setDaemon(true);
+            t.start();
+        } catch (Exception e) {
+            System.out.println("VoiceSelector: mapping watch unavailable: " + e.getMessage());
+        }
+    }
+
+    private void watchLoop(java.nio.file.WatchService ws) {
+        while (true) {
+            Set<java.nio.file.Path> changed = new LinkedHashSet<>();
+            boolean overflow;
+            try {
+                overflow = drain(ws.take(), changed);
+                // Editors emit bursts (truncate + write, temp file + rename); fold them into one rebuild
+                java.nio.file.WatchKey more;
+                while ((more = ws.poll(WATCH_SETTLE_MS, java.util.concurrent.TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= drain(more, changed);
+                }
+            } catch (InterruptedException | java.nio.file.ClosedWatchServiceException e) {
+                return;
+            }
+            if (overflow) {
+                loadMapping(initialMappingPath); // lost events: fall back to a full reload
+            } else if (!applyChanges(changed)) {
+                continue;
+            }
+            if ("true".equalsIgnoreCase(System.getProperty("osrs.tts.debug", "false"))) {
+                System.out.println("VoiceSelector: mappings reloaded" + (overflow ? " (full)" : " " + changed));
+            }
+            Runnable listener = onMappingsChanged;
+            if (listener != null) {
+                try { listener.run(); } catch (Exception ignored) {}
+            }
+        }
+    }
+
+    private static boolean drain(java.nio.file.WatchKey key, Set<java.nio.file.Path> changed) {
+        boolean overflow = false;
+        java.nio.file.Path dir = (java.nio.file.Path) key.watchable();
+        for (java.nio.file.WatchEvent<?> ev : key.pollEvents()) {
+            if (ev.kind() == java.nio.file.StandardWatchEventKinds.OVERFLOW) { overflow = true; continue; }
+            changed.add(dir.resolve((java.nio.file.Path) ev.context()));
+        }
+        key.reset();
+        return overflow;
+    }
+
+    /** Re-parse only the touched mapping files and republish. @return false when none of them is a mapping source */
+    private boolean applyChanges(Set<java.nio.file.Path> changed) {
+        synchronized (reloadLock) {
+            boolean relevant = false;
+            for (java.nio.file.Path file : changed) {
+                if (file.equals(mappingFile)) {
+                    readFragment(file, sourceKey(file, null));
+                    relevant = true;
+                }
+                if (questDirs.containsKey(file.getParent()) && isJson(file)) {
+                    readFragment(file, sourceKey(null, file));
+                    relevant = true;
+                }
+            }
+            if (relevant) publish();
+            return relevant;
+        }
     }
 
     public VoiceSelection select(String npcName, String lineText, Set<String> inferredTags) {
-        maybeReload();
+        return select(npcName, lineText, inferredTags, npcName);
+    }
+
+    /**
+     * @param seedKey key used to seed the category/fallback pools; callers pass an id-based key so
+     *                NPCs sharing a name can land on different voices. Explicit mappings still match by name.
+     */
+    public VoiceSelection select(String npcName, String lineText, Set<String> inferredTags, String seedKey) {
+        Mappings m = mappings; // one consistent view for the whole selection
         String voice = null;
 
         if (npcName != null) {
-            String exact = resolveProviderSpecific(exactNpcMap.get(npcName));
+            String exact = resolveProviderSpecific(m.exactNpcMap.get(npcName));
             if (exact == null) {
                 // Try tolerant normalized lookup
                 String normKey = normalizeNameKey(npcName);
                 if (normKey != null) {
-                    exact = resolveProviderSpecific(normalizedExactNpcMap.get(normKey));
+                    exact = resolveProviderSpecific(m.normalizedExactNpcMap.get(normKey));
                 }
             }
             if (exact != null) voice = exact;
 
             if (voice == null) {
-                for (var entry : regexNpcMap) {
+                for (var entry : m.regexNpcMap) {
                     String val = resolveProviderSpecific(entry.getValue());
                     if (val != null && entry.getKey().matcher(npcName).find()) {
                         voice = val;
@@ -297,9 +449,9 @@ public class VoiceSelector {
             // Mapping file tag->voice first (exact tag or provider-suffixed variant)
             for (String tag : inferredTags) {
                 String baseKey = tag.toLowerCase(Locale.ROOT);
-                String mapped = resolveProviderSpecific(tagMap.get(baseKey));
+                String mapped = resolveProviderSpecific(m.tagMap.get(baseKey));
                 if (mapped == null && !providerSuffix.isEmpty()) {
-                    mapped = resolveProviderSpecific(tagMap.get(baseKey + providerSuffix));
+                    mapped = resolveProviderSpecific(m.tagMap.get(baseKey + providerSuffix));
                 }
                 if (mapped != null) { voice = mapped; break; }
             }
@@ -313,7 +465,7 @@ public class VoiceSelector {
             }
             // Category pools (deterministic by name) only for Azure/Polly
             if (voice == null && !"ElevenLabs".equalsIgnoreCase(provider)) {
-                int seed = Math.abs((npcName != null ? npcName : "").hashCode());
+                int seed = Math.abs((seedKey != null ? seedKey : "").hashCode());
                 if (hasAny(inferredTags, "kid")) {
                     voice = chooseFrom(seed, npcKidVoice, KID_POOL);
                 } else if (hasAny(inferredTags, "female")) {
@@ -332,7 +484,7 @@ public class VoiceSelector {
                 voice = null;
             } else {
                 String gender = guessGender(npcName);
-                int seed = Math.abs((npcName != null ? npcName : "").hashCode());
+                int seed = Math.abs((seedKey != null ? seedKey : "").hashCode());
                 if ("female".equals(gender)) {
                     voice = chooseFrom(seed, npcFemaleVoice, FEMALE_POOL);
                 } else if ("male".equals(gender)) {
@@ -343,7 +495,7 @@ public class VoiceSelector {
 
         // Record unmapped NPCs (only when no explicit mapping chosen before fallback logic; voice still null here for ElevenLabs path)
         if (voice == null && npcName != null && !npcName.isBlank()) {
-            logUnmapped(npcName);
+            UNMAPPED.record(npcName);
         }
 
         if (voice == null || "auto".equalsIgnoreCase(voice)) {
@@ -364,39 +516,6 @@ public class VoiceSelector {
         return VoiceSelection.of(voice, style);
     }
 
-    private void maybeReload() {
-        // Only reload if developer flag enabled OR auto-reload property set
-        if (!Boolean.getBoolean("osrs.tts.devReload")) return;
-        long now = System.currentTimeMillis();
-        if (now - lastReloadTime < RELOAD_INTERVAL_MS) return;
-        // Rebuild maps
-        synchronized (this) {
-            if (now - lastReloadTime < RELOAD_INTERVAL_MS) return; // double-check
-            exactNpcMap.clear();
-            tagMap.clear();
-            regexNpcMap.clear();
-            normalizedExactNpcMap.clear();
-            loadMapping(initialMappingPath);
-            lastReloadTime = now;
-        }
-    }
-
-    private void logUnmapped(String npcName) {
-        String normalized = npcName.trim();
-        if (normalized.isEmpty() || UNMAPPED.contains(normalized)) return;
-        UNMAPPED.add(normalized);
-        try {
-            java.nio.file.Path dir = java.nio.file.Path.of("quest-voices");
-            if (!java.nio.file.Files.isDirectory(dir)) {
-                java.nio.file.Files.createDirectories(dir);
-            }
-            java.nio.file.Path file = dir.resolve("unmapped-npcs.txt");
-            String line = normalized + System.lineSeparator();
-            java.nio.file.Files.writeString(file, line, java.nio.charset.StandardCharsets.UTF_8,
-                    java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND);
-        } catch (Exception ignored) { }
-    }
-
     private String resolveProviderSpecific(String raw) {
         if (raw == null) return null;
         int idx = raw.indexOf(':');
@@ -444,19 +563,7 @@ public class VoiceSelector {
 
     // Normalizes NPC name for tolerant lookup: lower-case, trim, collapse spaces, strip common punctuation
     private String normalizeNameKey(String name) {
-        if (name == null) return null;
-        String n = name
-                .replace('\u00A0',' ') // non-breaking space
-                .replace('\u2019', '\'') // curly apostrophe to straight
-                .replace('\u2013', '-') // en-dash to hyphen
-                .replace('\u2014', '-') // em-dash to hyphen
-                .trim()
-                .toLowerCase(Locale.ROOT);
-        // remove duplicate spaces
-        n = n.replaceAll("\\s+", " ");
-        // strip trailing/leading punctuation segments
-        n = n.replaceAll("^[\\p{Punct}]+|[\\p{Punct}]+$", "");
-        return n;
+        return TextNormalizer.nameKey(name);
     }
 
     private String autoDefaultVoice(String npcName) {
@@ -482,18 +589,21 @@ public class VoiceSelector {
     public int getQuestVoicesCount() {
         // This would be implemented based on quest voice file loading
         // For now, return a placeholder count
-        return exactNpcMap.size();
+        return mappings.exactNpcMap.size();
     }
     
     /**
      * Shutdown voice selector and release resources.
      */
     public void shutdown() {
-        // Clear maps and release resources
-        exactNpcMap.clear();
-        tagMap.clear();
-        regexNpcMap.clear();
-        UNMAPPED.clear();
+        // Stop watching and release resources
+        java.nio.file.WatchService ws = watcher;
+        watcher = null;
+        if (ws != null) {
+            try { ws.close(); } catch (Exception ignored) {}
+        }
+        mappings = Mappings.EMPTY;
+        UNMAPPED.flush();
     }
 
     private String inferStyle(String text) {
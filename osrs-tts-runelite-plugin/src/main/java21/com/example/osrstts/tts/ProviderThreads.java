@@ -0,0 +1,21 @@
+package com.example.osrstts.tts;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21+ version of ProviderThreads, packaged under META-INF/versions/21: a virtual thread per task, so
+ * a blocked provider call or a parked HTTP callback costs no platform thread. Keep the API identical to
+ * the Java 11 class in src/main/java.
+ */
+public final class ProviderThreads {
+    private ProviderThreads() {}
+
+    /** Unbounded; callers that need a limit wrap it (see {@link BoundedBlockingExecutor}). */
+    public static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+    }
+
+    /** "platform" or "virtual", for stats and logs. */
+    public static String kind() { return "virtual"; }
+}
@@ -0,0 +1,32 @@
+package com.example.osrstts;
+
+import java.util.function.Function;
+
+/**
+ * Minimal timing helper for the benchmark mains in test sources (run with
+ * {@code ./gradlew benchmark -Pbench=<class>}). Best of several rounds after warm-up; good enough to compare
+ * an old and a new implementation side by side, not a substitute for JMH.
+ */
+public final class Microbench {
+    public static volatile Object sink;
+
+    private Microbench() {}
+
+    /** Best-of-10 nanoseconds per call of {@code f} over all {@code inputs}. */
+    public static <T> double nsPerOp(T[] inputs, int loops, Function<T, Object> f) {
+        for (int w = 0; w < 5; w++) for (int k = 0; k < loops; k++) for (T in : inputs) sink = f.apply(in);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) {
+            long t = System.nanoTime();
+            for (int k = 0; k < loops; k++) for (T in : inputs) sink = f.apply(in);
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        return best / ((double) loops * inputs.length);
+    }
+
+    public static <T> void compare(String name, T[] inputs, int loops, Function<T, Object> before, Function<T, Object> after) {
+        double b = nsPerOp(inputs, loops, before);
+        double a = nsPerOp(inputs, loops, after);
+        System.out.printf("%-16s before %9.1f ns/op   after %8.1f ns/op   x%.1f%n", name, b, a, b / a);
+    }
+}
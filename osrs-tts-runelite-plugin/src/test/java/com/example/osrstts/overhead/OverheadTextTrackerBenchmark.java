@@ -0,0 +1,95 @@
+package com.example.osrstts.overhead;
+
+import com.example.osrstts.text.TextNormalizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Checks {@link OverheadTextTracker} against a HashMap model under random inserts, changes and removes, then
+ * replays a crowded world (2000 players, 30% with overhead text, each changing about every 80 ticks) through the
+ * old per-tick path (strip tags, build and hash a key string, HashMap&lt;Integer,String&gt;) and the tracker,
+ * reporting time and bytes allocated per tick. Allocation figures need a HotSpot JVM.
+ */
+public class OverheadTextTrackerBenchmark {
+    private static final int PLAYERS = 2000;
+    private static final int TICKS = 2000;
+
+    public static void main(String[] args) {
+        checkAgainstModel(2_000_000);
+
+        String[] pool = new String[200];
+        for (int i = 0; i < pool.length; i++) pool[i] = "Selling " + i + " <col=ff0000>lobsters</col> 200ea!!";
+        for (int round = 0; round < 3; round++) {
+            long[] old = run(pool, false);
+            long[] tracked = run(pool, true);
+            System.out.printf("round %d: HashMap %.1f us/tick %d B/tick (%d changes) | tracker %.1f us/tick %d B/tick (%d changes)%n",
+                    round, old[0] / 1000.0 / TICKS, old[1] / TICKS, old[2], tracked[0] / 1000.0 / TICKS, tracked[1] / TICKS, tracked[2]);
+        }
+    }
+
+    static void checkAgainstModel(int ops) {
+        Random r = new Random(7);
+        OverheadTextTracker t = new OverheadTextTracker(64);
+        Map<Integer, Long> model = new HashMap<>();
+        for (int i = 0; i < ops; i++) {
+            int k = r.nextInt(60);
+            if (r.nextInt(5) == 0) {
+                t.remove(k);
+                model.remove(k);
+            } else {
+                String s = "t" + r.nextInt(4);
+                long fp = OverheadTextTracker.fingerprint(s);
+                boolean expected = !Objects.equals(model.put(k, fp), fp);
+                if (t.changed(k, s) != expected) throw new AssertionError("changed() differs from the model at op " + i);
+            }
+            if (t.size() != model.size()) throw new AssertionError("size differs from the model at op " + i);
+        }
+        OverheadTextTracker bounded = new OverheadTextTracker(8);
+        for (int k = 0; k < 100; k++) bounded.changed(k, "x");
+        if (bounded.size() > 8) throw new AssertionError("tracker grew past its cap: " + bounded.size());
+        System.out.println(ops + " ops match the HashMap model; capped table size=" + bounded.size() + " evictions=" + bounded.evictions());
+    }
+
+    // {nanos, allocated bytes, changes seen}
+    private static long[] run(String[] pool, boolean tracker) {
+        Random r = new Random(1);
+        String[] texts = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) texts[i] = r.nextInt(10) < 3 ? pool[r.nextInt(pool.length)] : null;
+        Map<Integer, String> old = new HashMap<>();
+        OverheadTextTracker tr = new OverheadTextTracker(2048);
+        long changes = 0;
+        long a0 = allocatedBytes();
+        long t0 = System.nanoTime();
+        for (int tick = 0; tick < TICKS; tick++) {
+            for (int i = 0; i < PLAYERS; i++) {
+                if (r.nextInt(80) == 0) texts[i] = r.nextInt(10) < 3 ? pool[r.nextInt(pool.length)] : null;
+                String text = texts[i];
+                if (text == null || text.isBlank()) continue;
+                if (tracker) {
+                    if (!tr.changed(i, text)) continue;
+                    if (TextNormalizer.stripTags(text).trim().isEmpty()) continue;
+                } else {
+                    String clean = text.replaceAll("<[^>]*>", "").trim();
+                    if (clean.isEmpty()) continue;
+                    String hash = Integer.toHexString((clean + "|P|" + i).hashCode());
+                    if (hash.equals(old.get(i))) continue;
+                    old.put(i, hash);
+                }
+                changes++;
+            }
+        }
+        return new long[] {System.nanoTime() - t0, allocatedBytes() - a0, changes};
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.osrstts.text;
+
+import com.example.osrstts.Microbench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Times each {@link TextNormalizer} scanner against the regex chain it replaced, on realistic chat and widget
+ * strings, after a randomized comparison of their outputs. The only expected differences are on malformed markup
+ * (a stray '<' ahead of a &lt;br&gt;, a surrogate pair split by a tag) and are reported, not failed on.
+ */
+public class TextNormalizerBenchmark {
+    static final String[] INPUTS = {
+            "<col=0000ff>Hans</col>", "Welcome to <col=ff0000>Lumbridge</col>! How can I help you today?",
+            "Hello there, adventurer. The <col=800000>Duke</col> wants to see you.<br>Hurry along now.",
+            "Bob", "Cook's Assistant", "  Sir   Amik  Varze  ", "I'm looking for a quest!", "Click here to continue",
+            "The Wise Old Man – Draynor", "<img=1>Iron Man<col=ff>:</col> selling lobbies 200ea"
+    };
+
+    public static void main(String[] args) {
+        int fuzz = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        checkEquivalence(fuzz);
+
+        Microbench.compare("stripTags", INPUTS, 200, s -> s.replaceAll("<[^>]*>", ""), TextNormalizer::stripTags);
+        Microbench.compare("sanitizeName", INPUTS, 200, Legacy::sanitizeName, TextNormalizer::sanitizeName);
+        Microbench.compare("foldForContain", INPUTS, 200, Legacy::foldForContain, TextNormalizer::foldForContain);
+        Microbench.compare("collapseSpeech", INPUTS, 200, Legacy::collapseForSpeech, TextNormalizer::collapseForSpeech);
+        Microbench.compare("nameKey", INPUTS, 200, Legacy::nameKey, TextNormalizer::nameKey);
+        Microbench.compare("endsSentence", INPUTS, 200, s -> s.matches(".*[.!?]\\s*$"), TextNormalizer::endsSentence);
+        Microbench.compare("visibleLines", INPUTS, 200, Legacy::visibleLines, TextNormalizer::visibleLines);
+    }
+
+    static void checkEquivalence(int iterations) {
+        String alphabet = "ab Z9<>/br \t\n\r\f\u000B ’–— .!?-_,'\"\u0001😀Éİ";
+        Random r = new Random(1);
+        int differ = 0;
+        int widgetDiffer = 0;
+        for (int it = 0; it < iterations; it++) {
+            int len = r.nextInt(24);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < len; i++) {
+                if (r.nextInt(8) == 0) sb.append(r.nextBoolean() ? "<br>" : "<col=ff>");
+                else sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+            }
+            String s = sb.toString();
+            boolean same = TextNormalizer.stripTags(s).equals(s.replaceAll("<[^>]*>", ""))
+                    && TextNormalizer.stripTagsToSpace(s).equals(s.replaceAll("<[^>]*>", " "))
+                    && TextNormalizer.sanitizeName(s).equals(Legacy.sanitizeName(s))
+                    && TextNormalizer.foldForContain(s).equals(Legacy.foldForContain(s))
+                    && TextNormalizer.collapseForSpeech(s).equals(Legacy.collapseForSpeech(s))
+                    && TextNormalizer.nameKey(s).equals(Legacy.nameKey(s))
+                    && TextNormalizer.endsSentence(s) == s.matches(".*[.!?]\\s*$");
+            if (!same) differ++;
+            if (!TextNormalizer.visibleLines(s).equals(Legacy.visibleLines(s))) widgetDiffer++;
+        }
+        System.out.println(iterations + " random strings: " + differ + " differ, " + widgetDiffer + " differ in widget lines (malformed markup)");
+        for (String s : INPUTS) {
+            if (!TextNormalizer.visibleLines(s).equals(Legacy.visibleLines(s)) || !TextNormalizer.nameKey(s).equals(Legacy.nameKey(s))) {
+                throw new AssertionError("scanner differs from regex chain on realistic input: " + s);
+            }
+        }
+    }
+
+    /** The regex chains the scanners replaced. */
+    static final class Legacy {
+        static String sanitizeName(String s) {
+            return s.replaceAll("<[^>]*>", "").replaceAll("[^A-Za-z0-9 _-]", " ").trim();
+        }
+
+        static String foldForContain(String s) {
+            String t = s.toLowerCase(Locale.ROOT);
+            t = t.replaceAll("<[^>]*>", "");
+            t = t.replace(' ', ' ');
+            t = t.replaceAll("[^a-z0-9 ]+", " ");
+            return t.replaceAll("\\s+", " ").trim();
+        }
+
+        static String collapseForSpeech(String s) {
+            String t = s.replaceAll("<[^>]*>", " ");
+            t = t.replace('\n', ' ').replace('\r', ' ');
+            return t.trim().replaceAll("\\s+", " ");
+        }
+
+        static String nameKey(String name) {
+            String n = name.replace(' ', ' ').replace('’', '\'').replace('–', '-').replace('—', '-').trim().toLowerCase(Locale.ROOT);
+            n = n.replaceAll("\\s+", " ");
+            return n.replaceAll("^[\\p{Punct}]+|[\\p{Punct}]+$", "");
+        }
+
+        static String widgetText(String in) {
+            String s = in.replace(' ', ' ');
+            s = s.replaceAll("(?i)<br\\s*/?>", "\n");
+            s = s.replaceAll("<[^>]*>", "");
+            s = s.replaceAll("[\\t\\x0B\\f\\r]", " ");
+            s = s.replaceAll(" {2,}", " ");
+            String[] lines = s.split("\n");
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < lines.length; i++) {
+                String ln = lines[i].trim();
+                if (!ln.isEmpty()) {
+                    out.append(ln);
+                    if (i < lines.length - 1) out.append('\n');
+                }
+            }
+            return out.toString();
+        }
+
+        static List<String> visibleLines(String t) {
+            String s = widgetText(t).trim();
+            List<String> r = new ArrayList<>();
+            if (s.isEmpty()) return r;
+            for (String p : s.split("\n+")) {
+                String pp = p.trim();
+                if (!pp.isEmpty()) r.add(pp);
+            }
+            return r;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.osrstts.tts;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Stand-in for the Piper executable in {@link PiperTtsClientTest}: speaks Piper's --json-input protocol
+ * (one request per stdin line, the written WAV's path per stdout line). The line's text picks the behaviour:
+ * CRASH exits, CRASH_ONCE exits unless a previous process already did, HANG never answers, anything else
+ * is answered with a short silent WAV.
+ */
+public final class FakePiperEngine {
+    private FakePiperEngine() {}
+
+    public static void main(String[] args) throws Exception {
+        Path out = Paths.get(args[Arrays.asList(args).indexOf("--output_dir") + 1]);
+        System.err.println("[piper] [info] Loaded voice");
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        for (int n = 0; (line = in.readLine()) != null; n++) {
+            String text = textOf(line);
+            if (text.equals("CRASH")) System.exit(3);
+            if (text.equals("CRASH_ONCE") && Files.notExists(out.resolve("crashed"))) {
+                Files.createFile(out.resolve("crashed"));
+                System.exit(3);
+            }
+            if (text.equals("HANG")) Thread.sleep(Long.MAX_VALUE);
+            Path wav = out.resolve(ProcessHandle.current().pid() + "_" + n + ".wav");
+            Files.write(wav, silentWav(text.length() * 100));
+            System.out.println("[piper] [info] Real-time factor: 0.1"); // interleaved logs must be skipped
+            System.out.println(wav);
+            System.out.flush();
+        }
+    }
+
+    private static String textOf(String json) {
+        int start = json.indexOf("\"text\":\"") + 8;
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private static byte[] silentWav(int samples) {
+        ByteBuffer b = ByteBuffer.allocate(44 + samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+        b.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + samples * 2).put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII))
+                .putInt(16).putShort((short) 1).putShort((short) 1).putInt(22050).putInt(44100).putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(samples * 2);
+        return b.array();
+    }
+}
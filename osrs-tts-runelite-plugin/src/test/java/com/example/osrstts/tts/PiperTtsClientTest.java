@@ -0,0 +1,129 @@
+package com.example.osrstts.tts;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Drives the persistent Piper workers against {@link FakePiperEngine}. The build runs tests with
+ * osrs.tts.piper.workers=1 and a short osrs.tts.piper.timeoutMs, so every line goes to the same worker.
+ */
+public class PiperTtsClientTest {
+    private PiperTtsClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        String classes = Paths.get(FakePiperEngine.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        // The client splits its command on whitespace
+        assumeFalse(classes.contains(" ") || java.contains(" "));
+        client = new PiperTtsClient(java + " -cp " + classes + " " + FakePiperEngine.class.getName(), "voice.onnx");
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) client.shutdown();
+    }
+
+    @Test
+    public void linesReuseTheRunningWorker() throws Exception {
+        byte[] first = client.synthesize("Hello there.", null);
+        byte[] second = client.synthesize("Welcome to Lumbridge.", null);
+
+        assertArrayPrefix("RIFF", first);
+        assertEquals(44 + "Welcome to Lumbridge.".length() * 200, second.length);
+        assertEquals(1, stat("starts"));
+        assertEquals(2, stat("lines"));
+    }
+
+    @Test
+    public void crashedWorkerIsRestartedAndTheLineRetried() throws Exception {
+        byte[] audio = client.synthesize("CRASH_ONCE", null);
+
+        assertArrayPrefix("RIFF", audio);
+        assertEquals(2, stat("starts"));
+    }
+
+    @Test
+    public void lineIsRetriedOnlyOnce() throws Exception {
+        try {
+            client.synthesize("CRASH", null);
+            fail("expected the line to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("exited"));
+        }
+        assertEquals(2, stat("starts"));
+    }
+
+    @Test
+    public void hungWorkerIsKilledAndNotRetried() throws Exception {
+        long t0 = System.currentTimeMillis();
+        try {
+            client.synthesize("HANG", null);
+            fail("expected the line to time out");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("timed out"));
+        }
+        assertTrue(System.currentTimeMillis() - t0 < Long.getLong("osrs.tts.piper.timeoutMs", 15_000L) * 2);
+        assertEquals(1, stat("starts"));
+        assertEquals(1, stat("timeouts"));
+
+        // The next line gets a fresh process
+        assertArrayPrefix("RIFF", client.synthesize("Still here?", null));
+        assertEquals(2, stat("starts"));
+    }
+
+    @Test
+    public void shutdownStopsWorkersAndRefusesLines() throws Exception {
+        client.synthesize("Goodbye.", null);
+        assertEquals(1, stat("alive"));
+
+        client.shutdown();
+
+        assertEquals(0, stat("alive"));
+        try {
+            client.synthesize("Anyone?", null);
+            fail("expected the client to refuse lines after shutdown");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void asyncLineAfterShutdownFailsItsFuture() throws Exception {
+        client.shutdown();
+
+        CompletableFuture<byte[]> f = client.synthesizeAsync("Too late.", null);
+
+        assertTrue(f.isCompletedExceptionally());
+        try {
+            f.get();
+            fail("expected the future to fail");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    private long stat(String name) {
+        Matcher m = Pattern.compile("\\b" + name + "=(\\d+)").matcher(client.getStats());
+        assertTrue(name + " missing from " + client.getStats(), m.find());
+        return Long.parseLong(m.group(1));
+    }
+
+    private static void assertArrayPrefix(String prefix, byte[] audio) {
+        assertTrue(audio != null && audio.length > 44 && new String(audio, 0, prefix.length(), StandardCharsets.US_ASCII).equals(prefix));
+    }
+}
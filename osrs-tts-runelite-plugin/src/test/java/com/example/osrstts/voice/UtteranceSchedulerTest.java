@@ -0,0 +1,65 @@
+package com.example.osrstts.voice;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class UtteranceSchedulerTest {
+    // Each played line's audio is its label
+    private final BlockingQueue<String> played = new LinkedBlockingQueue<>();
+    private final UtteranceScheduler scheduler = new UtteranceScheduler((audio, stopped) -> played.add(new String(audio)));
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void readyLineIsNotHeldUpBySlowerHigherPriorityLine() throws Exception {
+        CompletableFuture<byte[]> dialogue = new CompletableFuture<>();
+        scheduler.submit(UtteranceScheduler.Priority.DIALOGUE, "npc:cook", dialogue);
+        scheduler.submit(UtteranceScheduler.Priority.NARRATION, "narrator", ready("narration"));
+
+        assertEquals("narration", next());
+        dialogue.complete("dialogue".getBytes());
+        assertEquals("dialogue", next());
+    }
+
+    @Test
+    public void conversationPlaysInSubmitOrder() throws Exception {
+        CompletableFuture<byte[]> player = new CompletableFuture<>();
+        scheduler.submit(UtteranceScheduler.Priority.PLAYER, "player", player);
+        scheduler.submit(UtteranceScheduler.Priority.DIALOGUE, "npc:cook", ready("answer"));
+
+        // The NPC's answer is ready first but must not come before the line it answers
+        assertNull(played.poll(300, TimeUnit.MILLISECONDS));
+        player.complete("question".getBytes());
+        assertEquals("question", next());
+        assertEquals("answer", next());
+    }
+
+    @Test
+    public void failedConversationLineReleasesTheNextOne() throws Exception {
+        CompletableFuture<byte[]> player = new CompletableFuture<>();
+        scheduler.submit(UtteranceScheduler.Priority.PLAYER, "player", player);
+        scheduler.submit(UtteranceScheduler.Priority.DIALOGUE, "npc:cook", ready("answer"));
+
+        player.complete(null); // synthesis failed
+        assertEquals("answer", next());
+    }
+
+    private static CompletableFuture<byte[]> ready(String label) {
+        return CompletableFuture.completedFuture(label.getBytes());
+    }
+
+    private String next() throws InterruptedException {
+        return played.poll(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.osrstts.voice;
+
+import com.example.osrstts.OsrsTtsConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VoiceRuntimePreparedTest {
+    private VoiceRuntime runtime;
+
+    @Before
+    public void setUp() {
+        System.setProperty("osrs.tts.hedge", "false");
+        OsrsTtsConfig cfg = new OsrsTtsConfig();
+        // A Piper command that can't start: lines fail fast and locally instead of reaching a provider
+        cfg.setProvider("Piper");
+        cfg.setPiperCommand("osrs-tts-no-such-piper");
+        cfg.setCacheEnabled(false);
+        runtime = new VoiceRuntime(cfg);
+    }
+
+    @After
+    public void tearDown() {
+        runtime.shutdown();
+    }
+
+    @Test
+    public void repeatedPlayerLineIsSuppressed() throws Exception {
+        VoiceRuntime.Prepared first = runtime.preparePlayer("I need to find the cook.");
+        assertTrue(first.commit());
+
+        VoiceRuntime.Prepared repeat = runtime.preparePlayer("I need to find the cook.");
+        repeat.whenReady().get(5, TimeUnit.SECONDS);
+        assertTrue(repeat.readyAtMs() > 0);
+        assertFalse(repeat.commit());
+    }
+
+    @Test
+    public void repeatedNpcLineIsSuppressed() throws Exception {
+        VoiceRuntime.Prepared first = runtime.prepareNpc(null, "Cook", "What am I to do?", null);
+        assertTrue(first.commit());
+
+        VoiceRuntime.Prepared repeat = runtime.prepareNpc(null, "Cook", "What am I to do?", null);
+        assertFalse(repeat.commit());
+        assertFalse(repeat.discard());
+    }
+
+    @Test
+    public void sameLineFromAnotherSpeakerIsNotARepeat() {
+        assertTrue(runtime.prepareNpc(null, "Guard", "Halt!", null).commit());
+        assertTrue(runtime.prepareNpc(null, "Man", "Halt!", null).commit());
+        // The chat message and the dialog widget of one line carry the same speaker, however it is spelled
+        assertFalse(runtime.prepareNpc(3010, "guard ", "Halt!", null).commit());
+    }
+
+    @Test
+    public void overheadRepeatsArePerActor() {
+        assertFalse(runtime.isRepeatOverhead("npc#12", "Buying gf!"));
+        runtime.speakOverhead("npc#12", null, "Man", "Buying gf!", null);
+        assertTrue(runtime.isRepeatOverhead("npc#12", "Buying gf!"));
+        assertFalse(runtime.isRepeatOverhead("npc#13", "Buying gf!"));
+        // Overhead chat doesn't use up the dialogue line with the same words
+        assertTrue(runtime.prepareNpc(null, "Man", "Buying gf!", null).commit());
+    }
+}